@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Feeds the parser core from kxml and resolves resource references from a map
+ */
+final class JvmShortcutSource implements ShortcutXmlSource<String, JvmShortcutSource.Shortcut> {
+
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+    private static final String KEY_ACTION = "action";
+    private static final String KEY_TARGET_CLASS = "targetClass";
+
+    private final KXmlParser parser;
+    private final Map<String, Integer> resources;
+    private final Set<String> exportedActivities;
+
+    JvmShortcutSource(@NonNull Reader reader,
+                      @NonNull Map<String, Integer> resources,
+                      @NonNull Set<String> exportedActivities) throws XmlPullParserException {
+        this.parser = new KXmlParser();
+        this.parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+        this.parser.setInput(reader);
+        this.resources = resources;
+        this.exportedActivities = exportedActivities;
+    }
+
+    @NonNull
+    @Override
+    public XmlPullParser getParser() {
+        return parser;
+    }
+
+    @Override
+    public int getAttributeResourceValue(int index) {
+        Integer resId = resources.get(parser.getAttributeValue(index));
+        return resId != null ? resId : 0;
+    }
+
+    @Override
+    public boolean getAttributeBooleanValue(int index) {
+        return Boolean.parseBoolean(parser.getAttributeValue(index));
+    }
+
+    @Override
+    public String parseIntent() throws IOException, XmlPullParserException {
+        String action = parser.getAttributeValue(ANDROID_NAMESPACE, KEY_ACTION);
+        String targetClass = parser.getAttributeValue(ANDROID_NAMESPACE, KEY_TARGET_CLASS);
+
+        // skip extras and other children like Intent.parseIntent does
+        int depth = parser.getDepth();
+        int type;
+        while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
+                && (type != XmlPullParser.END_TAG || parser.getDepth() > depth)) {
+            // consume
+        }
+
+        if (action == null || action.isEmpty()) {
+            return null;
+        }
+
+        if (targetClass != null && !exportedActivities.contains(targetClass)) {
+            return null;
+        }
+
+        return action;
+    }
+
+    @NonNull
+    @Override
+    public Shortcut createShortcut(@NonNull String id,
+                                   boolean enabled,
+                                   int iconResId,
+                                   int shortLabelResId,
+                                   int longLabelResId,
+                                   int disabledMessageResId,
+                                   int rank,
+                                   @NonNull String intent,
+                                   @NonNull Set<String> categories) {
+        return new Shortcut(id, enabled, iconResId, shortLabelResId, longLabelResId,
+                disabledMessageResId, rank, intent, categories);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // the reader is owned by the caller
+    }
+
+    /**
+     * Mirrors the fields of an app shortcut
+     */
+    static final class Shortcut {
+        final String id;
+        final boolean enabled;
+        final int iconResId;
+        final int shortLabelResId;
+        final int longLabelResId;
+        final int disabledMessageResId;
+        final int rank;
+        final String action;
+        final Set<String> categories;
+
+        Shortcut(String id, boolean enabled, int iconResId, int shortLabelResId, int longLabelResId,
+                 int disabledMessageResId, int rank, String action, Set<String> categories) {
+            this.id = id;
+            this.enabled = enabled;
+            this.iconResId = iconResId;
+            this.shortLabelResId = shortLabelResId;
+            this.longLabelResId = longLabelResId;
+            this.disabledMessageResId = disabledMessageResId;
+            this.rank = rank;
+            this.action = action;
+            this.categories = categories;
+        }
+    }
+}
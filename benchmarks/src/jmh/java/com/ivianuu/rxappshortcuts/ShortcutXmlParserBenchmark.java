@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parse throughput of the shortcut parser core
+ * Run with the gc profiler to get the allocation per shortcut,
+ * gc.alloc.rate.norm divided by the shortcut count of the file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ShortcutXmlParserBenchmark {
+
+    private static final String ACTIVITY = "com.example.MainActivity";
+    private static final String HIDDEN_ACTIVITY = "com.example.HiddenActivity";
+
+    /**
+     * small: one shortcut
+     * typical: four shortcuts with categories
+     * pathological: many shortcuts with duplicate ids, invalid entries, unexported targets and large extras
+     */
+    @Param({"small", "typical", "pathological"})
+    public String file;
+
+    private String xml;
+    private final Map<String, Integer> resources = new HashMap<>();
+    private final Set<String> exportedActivities = new HashSet<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        exportedActivities.add(ACTIVITY);
+
+        switch (file) {
+            case "small":
+                xml = shortcuts(1, false);
+                break;
+            case "typical":
+                xml = shortcuts(4, false);
+                break;
+            case "pathological":
+                xml = shortcuts(200, true);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown file " + file);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws Exception {
+        ShortcutXmlParser<String, JvmShortcutSource.Shortcut> parser = new ShortcutXmlParser<>(
+                new JvmShortcutSource(new StringReader(xml), resources, exportedActivities));
+        try {
+            JvmShortcutSource.Shortcut shortcut;
+            while ((shortcut = parser.next()) != null) {
+                blackhole.consume(shortcut);
+            }
+        } finally {
+            parser.close();
+        }
+    }
+
+    private String shortcuts(int count, boolean pathological) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<shortcuts xmlns:android=\"http://schemas.android.com/apk/res/android\">\n");
+
+        for (int i = 0; i < count; i++) {
+            // every fourth id is a duplicate of the previous one
+            String id = pathological && i % 4 == 3 ? "shortcut" + (i - 1) : "shortcut" + i;
+            boolean invalid = pathological && i % 7 == 0;
+            boolean hidden = pathological && i % 5 == 0;
+
+            builder.append("    <shortcut\n")
+                    .append("        android:shortcutId=\"").append(id).append("\"\n")
+                    .append("        android:enabled=\"true\"\n")
+                    .append("        android:icon=\"").append(resource("@drawable/icon" + i)).append("\"\n");
+            if (!invalid) {
+                builder.append("        android:shortcutShortLabel=\"")
+                        .append(resource("@string/short_label" + i)).append("\"\n");
+            }
+            builder.append("        android:shortcutLongLabel=\"")
+                    .append(resource("@string/long_label" + i)).append("\"\n")
+                    .append("        android:shortcutDisabledMessage=\"")
+                    .append(resource("@string/disabled_message" + i)).append("\">\n");
+
+            builder.append("        <intent\n")
+                    .append("            android:action=\"android.intent.action.VIEW\"\n")
+                    .append("            android:targetPackage=\"com.example\"\n")
+                    .append("            android:targetClass=\"")
+                    .append(hidden ? HIDDEN_ACTIVITY : ACTIVITY).append("\"");
+            if (pathological) {
+                builder.append(">\n");
+                for (int j = 0; j < 20; j++) {
+                    builder.append("            <extra android:name=\"key").append(j)
+                            .append("\" android:value=\"value").append(j).append("\" />\n");
+                }
+                builder.append("        </intent>\n");
+            } else {
+                builder.append(" />\n");
+            }
+
+            int categories = pathological ? 8 : 1;
+            for (int j = 0; j < categories; j++) {
+                builder.append("        <categories android:name=\"android.shortcut.conversation")
+                        .append(j).append("\" />\n");
+            }
+
+            builder.append("    </shortcut>\n");
+        }
+
+        return builder.append("</shortcuts>\n").toString();
+    }
+
+    private String resource(String name) {
+        if (!resources.containsKey(name)) {
+            resources.put(name, 0x7f000000 + resources.size());
+        }
+        return name;
+    }
+}
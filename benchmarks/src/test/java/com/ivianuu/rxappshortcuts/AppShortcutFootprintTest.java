@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.net.Uri;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that resident shortcuts stay within their memory budget
+ * The budgets assume a 64 bit jvm with compressed oops,
+ * the measured sizes are listed in the footprint benchmark
+ */
+public class AppShortcutFootprintTest {
+
+    // enough shortcuts to make the heap noise negligible
+    private static final int SHORTCUT_COUNT = 50_000;
+
+    // 56 bytes are retained per shortcut
+    private static final long BUDGET_WITHOUT_INTENT = 80;
+    // 184 bytes are retained per shortcut with a view intent to a shared activity
+    private static final long BUDGET_WITH_INTENT = 224;
+
+    private final PackageDescriptor packageDescriptor = new PackageDescriptor("com.example", 1, 1L);
+    private final ComponentName activity = new ComponentName("com.example", "com.example.MainActivity");
+    private final ComponentName target = new ComponentName("com.example", "com.example.DetailActivity");
+    private final Set<String> categories = Collections.singleton("android.shortcut.conversation");
+    private final String[] ids = new String[SHORTCUT_COUNT];
+    private final String[] uris = new String[SHORTCUT_COUNT];
+
+    public AppShortcutFootprintTest() {
+        // the strings are shared with the parsed resources so they are not part of the footprint
+        for (int i = 0; i < SHORTCUT_COUNT; i++) {
+            ids[i] = "shortcut" + i;
+            uris[i] = "https://example.com/item/" + i;
+        }
+    }
+
+    @Test
+    public void shortcutWithoutIntentStaysWithinBudget() {
+        long retained = measureRetainedBytes(false);
+        assertTrue("retained " + retained + " bytes per shortcut, budget is " + BUDGET_WITHOUT_INTENT,
+                retained <= BUDGET_WITHOUT_INTENT);
+    }
+
+    @Test
+    public void shortcutWithIntentStaysWithinBudget() {
+        long retained = measureRetainedBytes(true);
+        assertTrue("retained " + retained + " bytes per shortcut, budget is " + BUDGET_WITH_INTENT,
+                retained <= BUDGET_WITH_INTENT);
+    }
+
+    /**
+     * Returns the average heap growth per shortcut which is still referenced after a gc
+     */
+    private long measureRetainedBytes(boolean withIntent) {
+        AppShortcut[] shortcuts = new AppShortcut[SHORTCUT_COUNT];
+        long before = usedHeap();
+        for (int i = 0; i < SHORTCUT_COUNT; i++) {
+            Intent intent = withIntent
+                    ? new Intent(Intent.ACTION_VIEW, Uri.parse(uris[i])).setComponent(target) : null;
+            shortcuts[i] = new AppShortcut(ids[i], packageDescriptor, activity, true,
+                    0x7f020000 + i, 0x7f0b0000 + i, 0, 0, i, intent, categories, null);
+        }
+        long after = usedHeap();
+        // keeps the shortcuts reachable until the heap was measured
+        assertTrue(shortcuts[SHORTCUT_COUNT - 1] != null);
+        return (after - before) / SHORTCUT_COUNT;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        // collects until the heap settled because a single gc is only a hint
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current == used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
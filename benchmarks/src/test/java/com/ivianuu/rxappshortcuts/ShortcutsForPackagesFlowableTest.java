@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.pm.PackageInfo;
+
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a single broken package does not fail a scan
+ */
+public class ShortcutsForPackagesFlowableTest {
+
+    private static final List<String> PACKAGES = Arrays.asList("com.first", "com.malformed", "com.last");
+
+    private static final Function<String, Single<PackageShortcuts>> LOADER = packageName -> {
+        if (packageName.equals("com.malformed")) {
+            throw new XmlPullParserException("malformed shortcuts xml");
+        }
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        return Single.just(new PackageShortcuts(packageInfo, ShortcutSet.empty()));
+    };
+
+    @Test
+    public void skipsMalformedPackageInOrderedScan() {
+        List<PackageShortcuts> results = ShortcutsForPackagesFlowable.create(
+                Flowable.fromIterable(PACKAGES), LOADER, 2, true)
+                .toList()
+                .blockingGet();
+
+        assertEquals(Arrays.asList("com.first", "com.last"), packageNames(results));
+    }
+
+    @Test
+    public void skipsMalformedPackageInUnorderedScan() {
+        List<PackageShortcuts> results = ShortcutsForPackagesFlowable.create(
+                Flowable.fromIterable(PACKAGES), LOADER, 2, false)
+                .toList()
+                .blockingGet();
+
+        assertEquals(2, results.size());
+        assertTrue(packageNames(results).containsAll(Arrays.asList("com.first", "com.last")));
+    }
+
+    @Test(expected = BrokenPackageError.class)
+    public void propagatesErrors() {
+        ShortcutsForPackagesFlowable.create(Flowable.fromIterable(PACKAGES), packageName -> {
+            throw new BrokenPackageError();
+        }, 2, true).blockingLast();
+    }
+
+    private static List<String> packageNames(List<PackageShortcuts> results) {
+        List<String> packageNames = new ArrayList<>();
+        for (PackageShortcuts result : results) {
+            packageNames.add(result.getPackageName());
+        }
+        return packageNames;
+    }
+
+    private static final class BrokenPackageError extends Error {
+    }
+}
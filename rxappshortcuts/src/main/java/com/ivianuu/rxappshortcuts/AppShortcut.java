@@ -17,55 +17,152 @@
 package com.ivianuu.rxappshortcuts;
 
 import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.drawable.Drawable;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import static com.ivianuu.rxappshortcuts.Preconditions.checkArgument;
+import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
+
 /**
  * ShortcutInfo Meta
+ * Instances are immutable, the package, activity and categories are shared between shortcuts
+ * The icon is parceled as a resource id and will be loaded lazily by the receiver
+ * Shortcuts provided by the launcher apps service carry resolved labels and no intent
  */
-public final class AppShortcut {
-
-    private String packageName;
-    private ComponentName activity;
-    private Set<String> categories;
-    private String id;
-    private boolean enabled;
-    private Drawable icon;
-    private String shortLabel;
-    private String longLabel;
-    private String disabledMessage;
-    private Intent intent;
-    private int rank;
+public final class AppShortcut implements Parcelable {
+
+    public static final Creator<AppShortcut> CREATOR = new Creator<AppShortcut>() {
+        @Override
+        public AppShortcut createFromParcel(Parcel source) {
+            PackageDescriptor packageDescriptor = new PackageDescriptor(
+                    source.readString(), source.readInt(), source.readLong());
+            ComponentName activity = new ComponentName(
+                    packageDescriptor.getPackageName(), source.readString());
+            String id = source.readString();
+            int rankAndFlags = source.readInt();
+            int iconResId = source.readInt();
+            int shortLabelResId = source.readInt();
+            int longLabelResId = source.readInt();
+            int disabledMessageResId = source.readInt();
+            List<String> categories = new ArrayList<>();
+            source.readStringList(categories);
+            Intent intent = source.readParcelable(Intent.class.getClassLoader());
+            Labels labels = source.readInt() != 0
+                    ? new Labels(source.readString(), source.readString(), source.readString())
+                    : null;
+            return new AppShortcut(
+                    id,
+                    packageDescriptor,
+                    activity,
+                    (rankAndFlags & FLAG_ENABLED) != 0,
+                    iconResId,
+                    shortLabelResId,
+                    longLabelResId,
+                    disabledMessageResId,
+                    rankAndFlags >>> RANK_SHIFT,
+                    intent,
+                    new HashSet<>(categories),
+                    labels);
+        }
+
+        @Override
+        public AppShortcut[] newArray(int size) {
+            return new AppShortcut[size];
+        }
+    };
+
+    private static final int FLAG_ENABLED = 1;
+    private static final int RANK_SHIFT = 1;
+
+    private final PackageDescriptor packageDescriptor;
+    private final ComponentName activity;
+    private final Set<String> categories;
+    private final String id;
+    private final int iconResId;
+    // labels are resolved lazily
+    private final int shortLabelResId;
+    private final int longLabelResId;
+    private final int disabledMessageResId;
+    private final Intent intent;
+    // rank and enabled packed into one int
+    private final int rankAndFlags;
+    // only set for shortcuts of the launcher apps service
+    private final Labels labels;
+
+    AppShortcut(@NonNull String id,
+                @NonNull PackageDescriptor packageDescriptor,
+                @NonNull ComponentName activity,
+                boolean enabled,
+                int iconResId,
+                int shortLabelResId,
+                int longLabelResId,
+                int disabledMessageResId,
+                int rank,
+                @NonNull Intent intent,
+                @NonNull Set<String> categories) {
+        this(id, packageDescriptor, activity, enabled, iconResId, shortLabelResId, longLabelResId,
+                disabledMessageResId, rank, intent, categories, null);
+    }
 
     AppShortcut(@NonNull String id,
-                @NonNull String packageName,
+                @NonNull PackageDescriptor packageDescriptor,
                 @NonNull ComponentName activity,
                 boolean enabled,
-                @NonNull Drawable icon,
-                @NonNull String shortLabel,
-                @NonNull String longLabel,
-                @NonNull String disabledMessage,
-                int rank) {
+                int iconResId,
+                int shortLabelResId,
+                int longLabelResId,
+                int disabledMessageResId,
+                int rank,
+                @Nullable Intent intent,
+                @NonNull Set<String> categories,
+                @Nullable Labels labels) {
         this.id = id;
-        this.packageName = packageName;
+        this.packageDescriptor = packageDescriptor;
         this.activity = activity;
-        this.enabled = enabled;
-        this.icon = icon;
-        this.shortLabel = shortLabel;
-        this.longLabel = longLabel;
-        this.disabledMessage = disabledMessage;
-        this.rank = rank;
+        this.iconResId = iconResId;
+        this.shortLabelResId = shortLabelResId;
+        this.longLabelResId = longLabelResId;
+        this.disabledMessageResId = disabledMessageResId;
+        this.intent = intent;
+        this.categories = CategorySets.canonicalize(categories);
+        this.rankAndFlags = (rank << RANK_SHIFT) | (enabled ? FLAG_ENABLED : 0);
+        this.labels = labels;
     }
 
     /**
      * Returns the intent of this shortcut
+     * or null if it was provided by the launcher apps service which does not expose intents,
+     * this only happens if {@link ShortcutConfig#isLauncherAppsEnabled()} is true
+     * Use {@link #start(Context)} to launch any shortcut
      */
-    @NonNull
+    @Nullable
     public Intent getIntent() {
-        return intent;
+        // the intent is mutable
+        return intent != null ? new Intent(intent) : null;
+    }
+
+    /**
+     * Launches this shortcut
+     * Shortcuts of the launcher apps service are started through the service
+     * which throws a security exception if we are not the default launcher anymore
+     */
+    public void start(@NonNull Context context) {
+        checkNotNull(context, "context == null");
+        if (intent != null) {
+            context.startActivity(getIntent());
+        } else {
+            LauncherAppsShortcuts.startShortcut(context, this);
+        }
     }
 
     /**
@@ -73,7 +170,7 @@ public final class AppShortcut {
      */
     @NonNull
     public String getPackageName() {
-        return packageName;
+        return packageDescriptor.getPackageName();
     }
 
     /**
@@ -85,49 +182,102 @@ public final class AppShortcut {
     }
 
     /**
-     * Returns the icon of this shortcut
+     * Returns the icon resource id of this shortcut or 0 if it has no icon
+     * Shortcuts of the launcher apps service always return 0 but might have an icon
      */
-    @NonNull
-    public Drawable getIcon() {
-        return icon;
+    public int getIconResId() {
+        return iconResId;
+    }
+
+    /**
+     * Loads the icon of this shortcut or returns null if it has no icon
+     * This should not be called on the main thread
+     */
+    @Nullable
+    public Drawable loadIcon(@NonNull Context context) {
+        checkNotNull(context, "context == null");
+        return IconLoader.loadIcon(context, this);
+    }
+
+    /**
+     * Loads the icon of this shortcut rendered at the size in pixels
+     * or returns null if it has no icon
+     * This should not be called on the main thread
+     */
+    @Nullable
+    public Drawable loadIcon(@NonNull Context context, int size) {
+        checkNotNull(context, "context == null");
+        checkArgument(size > 0, "size <= 0");
+        return IconLoader.loadIcon(context, this, size);
     }
 
     /**
      * Returns the rank of this shortcut
      */
     public int getRank() {
-        return rank;
+        return rankAndFlags >>> RANK_SHIFT;
     }
 
     /**
      * Returns the disabled message of this shortcut
+     * The message is resolved lazily for the current locale
      */
     @NonNull
     public String getDisabledMessage() {
-        return disabledMessage;
+        String disabledMessage = labels != null
+                ? labels.disabledMessage : LabelResolver.get().resolve(packageDescriptor, disabledMessageResId);
+        return disabledMessage != null ? disabledMessage : "";
     }
 
     /**
-     * Returns the long label of this shortcut
+     * Returns the long label of this shortcut or null if it has none
+     * The label is resolved lazily for the current locale
      */
-    @NonNull
+    @Nullable
     public String getLongLabel() {
-        return longLabel;
+        if (labels != null) {
+            return labels.longLabel;
+        }
+        return LabelResolver.get().resolve(packageDescriptor, longLabelResId);
     }
 
     /**
      * Returns the short label of this shortcut
+     * The label is resolved lazily for the current locale
      */
     @NonNull
     public String getShortLabel() {
-        return shortLabel;
+        String shortLabel = labels != null
+                ? labels.shortLabel : LabelResolver.get().resolve(packageDescriptor, shortLabelResId);
+        return shortLabel != null ? shortLabel : "";
+    }
+
+    /**
+     * Returns the short label resource id of this shortcut
+     */
+    public int getShortLabelResId() {
+        return shortLabelResId;
+    }
+
+    /**
+     * Returns the long label resource id of this shortcut or 0 if it has none
+     */
+    public int getLongLabelResId() {
+        return longLabelResId;
+    }
+
+    /**
+     * Returns the disabled message resource id of this shortcut or 0 if it has none
+     */
+    public int getDisabledMessageResId() {
+        return disabledMessageResId;
     }
 
     /**
      * Returns if this shortcut is enabled or not
      */
     public boolean isEnabled() {
-        return enabled;
+        return (rankAndFlags & FLAG_ENABLED) != 0;
     }
 
     /**
@@ -147,16 +297,160 @@ public final class AppShortcut {
     }
 
     /**
-     * Sets the categories
+     * Returns the version code of the package when this shortcut was parsed
      */
-    void setCategories(@NonNull Set<String> categories) {
-        this.categories = categories;
+    public int getVersionCode() {
+        return packageDescriptor.getVersionCode();
     }
 
     /**
-     * Sets the intent
+     * Returns the last update time of the package when this shortcut was parsed
      */
-    void setIntent(@NonNull Intent intent) {
-        this.intent = intent;
+    long getLastUpdateTime() {
+        return packageDescriptor.getLastUpdateTime();
+    }
+
+    /**
+     * Returns if the other shortcut is the same shortcut, maybe in a different version
+     * Shortcuts are identified by their package, activity and id
+     */
+    public boolean isSameShortcut(@NonNull AppShortcut other) {
+        checkNotNull(other, "other == null");
+        return id.equals(other.id)
+                && activity.equals(other.activity);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AppShortcut)) return false;
+        AppShortcut that = (AppShortcut) o;
+        // labels are resolved lazily so the package version is part of the content
+        return isSameShortcut(that)
+                && rankAndFlags == that.rankAndFlags
+                && iconResId == that.iconResId
+                && shortLabelResId == that.shortLabelResId
+                && longLabelResId == that.longLabelResId
+                && disabledMessageResId == that.disabledMessageResId
+                && packageDescriptor.getVersionCode() == that.packageDescriptor.getVersionCode()
+                && packageDescriptor.getLastUpdateTime() == that.packageDescriptor.getLastUpdateTime()
+                && categories.equals(that.categories)
+                && (intent != null ? that.intent != null && intent.toUri(0).equals(that.intent.toUri(0))
+                : that.intent == null)
+                && (labels != null ? labels.equals(that.labels) : that.labels == null);
+    }
+
+    @Override
+    public int hashCode() {
+        // only the identity so the hash code is stable across versions
+        int result = activity.hashCode();
+        result = 31 * result + id.hashCode();
+        return result;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(packageDescriptor.getPackageName());
+        dest.writeInt(packageDescriptor.getVersionCode());
+        dest.writeLong(packageDescriptor.getLastUpdateTime());
+        dest.writeString(activity.getClassName());
+        dest.writeString(id);
+        dest.writeInt(rankAndFlags);
+        dest.writeInt(iconResId);
+        dest.writeInt(shortLabelResId);
+        dest.writeInt(longLabelResId);
+        dest.writeInt(disabledMessageResId);
+        dest.writeStringList(new ArrayList<>(categories));
+        dest.writeParcelable(intent, flags);
+        dest.writeInt(labels != null ? 1 : 0);
+        if (labels != null) {
+            dest.writeString(labels.shortLabel);
+            dest.writeString(labels.longLabel);
+            dest.writeString(labels.disabledMessage);
+        }
+    }
+
+    /**
+     * Returns the shared descriptor of the package
+     */
+    @NonNull
+    PackageDescriptor getPackageDescriptor() {
+        return packageDescriptor;
+    }
+
+    /**
+     * Returns the resolved labels or null if they are resolved from resources
+     */
+    @Nullable
+    Labels getLabels() {
+        return labels;
+    }
+
+    /**
+     * Returns if this shortcut was provided by the launcher apps service
+     */
+    boolean isLauncherAppsShortcut() {
+        return labels != null;
+    }
+
+    /**
+     * Returns if this shortcut might have an icon
+     */
+    boolean hasIcon() {
+        return iconResId != 0 || isLauncherAppsShortcut();
+    }
+
+    /**
+     * Labels which were already resolved by the system
+     */
+    static final class Labels {
+        private final String shortLabel;
+        private final String longLabel;
+        private final String disabledMessage;
+
+        Labels(@Nullable String shortLabel, @Nullable String longLabel, @Nullable String disabledMessage) {
+            this.shortLabel = shortLabel != null ? shortLabel : "";
+            this.longLabel = longLabel;
+            this.disabledMessage = disabledMessage;
+        }
+
+        @NonNull
+        String getShortLabel() {
+            return shortLabel;
+        }
+
+        @Nullable
+        String getLongLabel() {
+            return longLabel;
+        }
+
+        @Nullable
+        String getDisabledMessage() {
+            return disabledMessage;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Labels)) return false;
+            Labels that = (Labels) o;
+            return shortLabel.equals(that.shortLabel)
+                    && (longLabel != null ? longLabel.equals(that.longLabel) : that.longLabel == null)
+                    && (disabledMessage != null
+                    ? disabledMessage.equals(that.disabledMessage) : that.disabledMessage == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shortLabel.hashCode();
+            result = 31 * result + (longLabel != null ? longLabel.hashCode() : 0);
+            result = 31 * result + (disabledMessage != null ? disabledMessage.hashCode() : 0);
+            return result;
+        }
     }
 }
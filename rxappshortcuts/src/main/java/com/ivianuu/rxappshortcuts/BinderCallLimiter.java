@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of concurrent package manager calls
+ * Calls which exceed the limit are queued in order
+ */
+final class BinderCallLimiter {
+
+    private final Semaphore semaphore;
+
+    BinderCallLimiter(int maxConcurrentCalls) {
+        semaphore = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Blocks until a call is allowed
+     * Must be followed by release
+     */
+    void acquire() throws InterruptedException {
+        semaphore.acquire();
+    }
+
+    /**
+     * Releases a previously acquired call
+     */
+    void release() {
+        semaphore.release();
+    }
+}
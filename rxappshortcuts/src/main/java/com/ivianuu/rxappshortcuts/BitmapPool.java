@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps unused square icon bitmaps so they can be drawn into again
+ * The size of the pool is measured in bytes
+ */
+final class BitmapPool {
+
+    private final SparseArray<ArrayDeque<Bitmap>> bitmaps = new SparseArray<>();
+    private final int maxBytes;
+    private int bytes = 0;
+
+    BitmapPool(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a cleared bitmap of the size or null if there is none
+     */
+    @Nullable
+    synchronized Bitmap get(int size) {
+        ArrayDeque<Bitmap> queue = bitmaps.get(size);
+        Bitmap bitmap = queue != null ? queue.poll() : null;
+        if (bitmap == null) {
+            return null;
+        }
+
+        bytes -= bitmap.getAllocationByteCount();
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Adds the bitmap to the pool
+     * The bitmap must not be used by anyone else afterwards
+     */
+    synchronized void put(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getWidth() != bitmap.getHeight()) {
+            return;
+        }
+
+        int byteCount = bitmap.getAllocationByteCount();
+        if (bytes + byteCount > maxBytes) {
+            // pool is full
+            return;
+        }
+
+        ArrayDeque<Bitmap> queue = bitmaps.get(bitmap.getWidth());
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            bitmaps.put(bitmap.getWidth(), queue);
+        }
+        queue.push(bitmap);
+        bytes += byteCount;
+    }
+
+    /**
+     * Removes all bitmaps
+     */
+    synchronized void clear() {
+        bitmaps.clear();
+        bytes = 0;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps categories to the shortcuts of all queried packages
+ * Lookups are lock free, only updates are synchronized
+ */
+final class CategoryIndex {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, List<AppShortcut>>> byCategory
+            = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ShortcutSet> byPackage = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shortcuts of all indexed packages with the category
+     */
+    @NonNull
+    List<AppShortcut> get(@NonNull String category) {
+        ConcurrentMap<String, List<AppShortcut>> packages = byCategory.get(category);
+        if (packages == null || packages.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<AppShortcut> shortcuts = new ArrayList<>();
+        for (List<AppShortcut> packageShortcuts : packages.values()) {
+            shortcuts.addAll(packageShortcuts);
+        }
+        return Collections.unmodifiableList(shortcuts);
+    }
+
+    /**
+     * Replaces the indexed shortcuts of the package
+     */
+    synchronized void put(@NonNull String packageName, @NonNull ShortcutSet shortcuts) {
+        ShortcutSet previous = byPackage.put(packageName, shortcuts);
+        if (previous != null) {
+            removeCategories(packageName, previous);
+        }
+
+        for (String category : shortcuts.getCategories()) {
+            ConcurrentMap<String, List<AppShortcut>> packages = byCategory.get(category);
+            if (packages == null) {
+                packages = new ConcurrentHashMap<>();
+                byCategory.put(category, packages);
+            }
+            packages.put(packageName, shortcuts.getByCategory(category));
+        }
+    }
+
+    /**
+     * Removes the indexed shortcuts of the package
+     */
+    synchronized void remove(@NonNull String packageName) {
+        ShortcutSet previous = byPackage.remove(packageName);
+        if (previous != null) {
+            removeCategories(packageName, previous);
+        }
+    }
+
+    /**
+     * Removes all indexed shortcuts
+     */
+    synchronized void clear() {
+        byPackage.clear();
+        byCategory.clear();
+    }
+
+    private void removeCategories(String packageName, ShortcutSet shortcuts) {
+        for (String category : shortcuts.getCategories()) {
+            ConcurrentMap<String, List<AppShortcut>> packages = byCategory.get(category);
+            if (packages != null) {
+                packages.remove(packageName);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonicalizes category sets so equal sets are only held once
+ */
+final class CategorySets {
+
+    private static final ConcurrentMap<Set<String>, Set<String>> CANONICAL = new ConcurrentHashMap<>();
+
+    private CategorySets() {
+        // no instances
+    }
+
+    /**
+     * Returns the canonical immutable instance of the categories
+     */
+    @NonNull
+    static Set<String> canonicalize(@NonNull Set<String> categories) {
+        if (categories.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> canonical = CANONICAL.get(categories);
+        if (canonical != null) {
+            return canonical;
+        }
+
+        Set<String> copy = new HashSet<>(categories.size());
+        for (String category : categories) {
+            copy.add(category.intern());
+        }
+        canonical = Collections.unmodifiableSet(copy);
+
+        Set<String> existing = CANONICAL.putIfAbsent(canonical, canonical);
+        return existing != null ? existing : canonical;
+    }
+}
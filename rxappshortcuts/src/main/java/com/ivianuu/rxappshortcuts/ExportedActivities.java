@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.support.annotation.NonNull;
+
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Counter;
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Phase;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Knows which activities are exported during the parse of a single package
+ * The activities of the scanned package info are answered from memory,
+ * all other components are resolved one by one
+ * Nothing is kept after the parse so the states can't get stale or pile up
+ */
+final class ExportedActivities {
+
+    private final Context context;
+    private final String packageName;
+    // shared by the activities which are parsed in parallel
+    private final Map<ComponentName, Boolean> exported = new ConcurrentHashMap<>();
+
+    ExportedActivities(@NonNull Context context, @NonNull PackageInfo packageInfo) {
+        this.context = context;
+        this.packageName = packageInfo.packageName;
+        if (packageInfo.activities != null) {
+            // we already know which of the scanned activities are exported
+            for (ActivityInfo activityInfo : packageInfo.activities) {
+                exported.put(new ComponentName(packageName, activityInfo.name), activityInfo.exported);
+            }
+        }
+    }
+
+    /**
+     * Returns if the component is exported
+     * Unknown components are treated as exported
+     */
+    boolean isExported(@NonNull ComponentName component) throws InterruptedException {
+        Boolean result = exported.get(component);
+        if (result == null) {
+            result = load(component);
+            exported.put(component, result);
+        }
+        return result;
+    }
+
+    private boolean load(ComponentName component) throws InterruptedException {
+        // only the activity is transferred instead of all activities of its package
+        // the work is reported for the package whose shortcuts are parsed
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        long start = ShortcutMetrics.start(config);
+        BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+        binderCallLimiter.acquire();
+        try {
+            return context.getPackageManager().getActivityInfo(component, 0).exported;
+        } catch (PackageManager.NameNotFoundException e) {
+            e.printStackTrace();
+            return true;
+        } finally {
+            binderCallLimiter.release();
+            ShortcutMetrics.count(config, packageName, Counter.BINDER_CALLS, 1);
+            ShortcutMetrics.phase(config, packageName, Phase.EXPORTED_CHECK, start);
+        }
+    }
+}
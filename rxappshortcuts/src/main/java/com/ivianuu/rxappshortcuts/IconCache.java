@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.graphics.Bitmap;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static com.ivianuu.rxappshortcuts.Preconditions.checkArgument;
+
+/**
+ * Caches rasterized shortcut icons
+ * The size of the cache is measured in bytes
+ * Evicted icons which were never handed out are kept in a pool and drawn into again
+ */
+public final class IconCache {
+
+    private static final int DEFAULT_POOL_BYTES = 4 * 1024 * 1024;
+
+    private final LruCache<Key, Bitmap> cache;
+    private final BitmapPool bitmapPool;
+
+    // reference counts of reusable icons, guarded by the lock
+    private final Object lock = new Object();
+    private final Map<Bitmap, Integer> references = new IdentityHashMap<>();
+
+    private IconCache(int maxBytes, int maxPoolBytes) {
+        cache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Key key, Bitmap oldValue, Bitmap newValue) {
+                release(oldValue);
+            }
+        };
+        bitmapPool = new BitmapPool(maxPoolBytes);
+    }
+
+    /**
+     * Returns a new icon cache which holds at most max bytes
+     */
+    @CheckResult @NonNull
+    public static IconCache create(int maxBytes) {
+        return create(maxBytes, DEFAULT_POOL_BYTES);
+    }
+
+    /**
+     * Returns a new icon cache which holds at most max bytes
+     * and keeps at most max pool bytes of evicted icons for reuse
+     */
+    @CheckResult @NonNull
+    public static IconCache create(int maxBytes, int maxPoolBytes) {
+        checkArgument(maxBytes > 0, "maxBytes <= 0");
+        checkArgument(maxPoolBytes >= 0, "maxPoolBytes < 0");
+        return new IconCache(maxBytes, maxPoolBytes);
+    }
+
+    /**
+     * Returns a new icon cache which uses a 16th of the available memory
+     */
+    @CheckResult @NonNull
+    static IconCache createDefault() {
+        long maxBytes = Runtime.getRuntime().maxMemory() / 16;
+        return new IconCache((int) Math.min(maxBytes, Integer.MAX_VALUE), DEFAULT_POOL_BYTES);
+    }
+
+    /**
+     * Returns the cached icon of the shortcut at the size
+     * The icon is handed out so it will never be reused
+     */
+    @Nullable
+    Bitmap get(@NonNull AppShortcut shortcut, int size) {
+        synchronized (lock) {
+            Bitmap icon = cache.get(new Key(shortcut, size));
+            if (icon != null) {
+                references.remove(icon);
+            }
+            return icon;
+        }
+    }
+
+    /**
+     * Caches the icon of the shortcut at the size
+     * The icon will never be reused
+     */
+    void put(@NonNull AppShortcut shortcut, int size, @NonNull Bitmap icon) {
+        cache.put(new Key(shortcut, size), icon);
+    }
+
+    /**
+     * Returns the cached icon of the shortcut at the size with a reference for the caller
+     * The reference must be released
+     */
+    @Nullable
+    Bitmap acquire(@NonNull AppShortcut shortcut, int size) {
+        synchronized (lock) {
+            Bitmap icon = cache.get(new Key(shortcut, size));
+            if (icon != null) {
+                Integer count = references.get(icon);
+                if (count != null) {
+                    references.put(icon, count + 1);
+                }
+            }
+            return icon;
+        }
+    }
+
+    /**
+     * Caches the reusable icon of the shortcut at the size with a reference for the caller
+     * The reference must be released
+     */
+    void putAcquired(@NonNull AppShortcut shortcut, int size, @NonNull Bitmap icon) {
+        synchronized (lock) {
+            // one reference for the cache and one for the caller
+            references.put(icon, 2);
+        }
+        cache.put(new Key(shortcut, size), icon);
+    }
+
+    /**
+     * Releases a reference of a previously acquired icon
+     * The icon will be reused once it is neither cached nor acquired anymore
+     */
+    void release(@NonNull Bitmap icon) {
+        synchronized (lock) {
+            Integer count = references.get(icon);
+            if (count == null) {
+                // handed out or not reusable
+                return;
+            }
+
+            if (count > 1) {
+                references.put(icon, count - 1);
+                return;
+            }
+
+            references.remove(icon);
+            bitmapPool.put(icon);
+        }
+    }
+
+    /**
+     * Returns a cleared reusable bitmap of the size or null if there is none
+     */
+    @Nullable
+    Bitmap getPooledBitmap(int size) {
+        return bitmapPool.get(size);
+    }
+
+    /**
+     * Adds the unused bitmap to the pool
+     */
+    void pool(@NonNull Bitmap bitmap) {
+        bitmapPool.put(bitmap);
+    }
+
+    /**
+     * Removes all icons of the package
+     */
+    public void remove(@NonNull String packageName) {
+        for (Key key : cache.snapshot().keySet()) {
+            if (key.packageName.equals(packageName)) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all icons
+     */
+    public void evictAll() {
+        cache.evictAll();
+        bitmapPool.clear();
+    }
+
+    /**
+     * Returns the size of all cached icons in bytes
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the max size of this cache in bytes
+     */
+    public int maxSize() {
+        return cache.maxSize();
+    }
+
+    /**
+     * Returns how often a requested icon was cached
+     */
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    /**
+     * Returns how often a requested icon was not cached
+     */
+    public int missCount() {
+        return cache.missCount();
+    }
+
+    /**
+     * Returns how many icons were evicted
+     */
+    public int evictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * Identifies the icon of a shortcut at a size
+     */
+    static final class Key {
+        private final String packageName;
+        private final int iconResId;
+        private final int versionCode;
+        private final int size;
+        // icons of the launcher apps service have no resource id
+        private final String shortcutId;
+
+        Key(@NonNull AppShortcut shortcut, int size) {
+            this.packageName = shortcut.getPackageName();
+            this.iconResId = shortcut.getIconResId();
+            this.versionCode = shortcut.getVersionCode();
+            this.size = size;
+            this.shortcutId = shortcut.isLauncherAppsShortcut() ? shortcut.getId() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return iconResId == key.iconResId
+                    && versionCode == key.versionCode
+                    && size == key.size
+                    && packageName.equals(key.packageName)
+                    && (shortcutId != null ? shortcutId.equals(key.shortcutId) : key.shortcutId == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = packageName.hashCode();
+            result = 31 * result + iconResId;
+            result = 31 * result + versionCode;
+            result = 31 * result + size;
+            result = 31 * result + (shortcutId != null ? shortcutId.hashCode() : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Phase;
+
+/**
+ * Loads the icons of shortcuts
+ */
+final class IconLoader {
+
+    private IconLoader() {
+        // no instances
+    }
+
+    /**
+     * Returns the icon of the shortcut or null if it has none
+     */
+    @Nullable
+    static Drawable loadIcon(@NonNull Context context, @NonNull AppShortcut shortcut) {
+        if (shortcut.isLauncherAppsShortcut()) {
+            return LauncherAppsShortcuts.loadIcon(context, shortcut);
+        }
+
+        if (shortcut.getIconResId() == 0) {
+            // no icon
+            return null;
+        }
+
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        long start = ShortcutMetrics.start(config);
+        try {
+            Context packageContext = PackageContextCache.get().getPackageContext(
+                    context, shortcut.getPackageName(), shortcut.getLastUpdateTime());
+            Drawable icon = packageContext.getDrawable(shortcut.getIconResId());
+            ShortcutMetrics.phase(config, shortcut.getPackageName(), Phase.DECODE_ICON, start);
+            return icon;
+        } catch (PackageManager.NameNotFoundException | Resources.NotFoundException e) {
+            e.printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the icon of the shortcut rendered at the size or null if it has none
+     * Rendered icons are cached in the icon cache
+     */
+    @Nullable
+    static Drawable loadIcon(@NonNull Context context, @NonNull AppShortcut shortcut, int size) {
+        if (!shortcut.hasIcon()) {
+            // no icon
+            return null;
+        }
+
+        IconCache iconCache = RxAppShortcuts.getConfig().getIconCache();
+        // the bitmap is handed out so it will never be reused
+        Bitmap bitmap = iconCache.get(shortcut, size);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            if (!drawIcon(context, shortcut, bitmap)) {
+                return null;
+            }
+            iconCache.put(shortcut, size, bitmap);
+        }
+
+        return new BitmapDrawable(context.getResources(), bitmap);
+    }
+
+    /**
+     * Returns the icon of the shortcut rendered at the size or null if it has none
+     * The returned bitmap is referenced for the caller and must be released to the icon cache
+     * Rendered icons are cached in the icon cache and their bitmaps are reused once they are released
+     */
+    @Nullable
+    static Bitmap acquireIcon(@NonNull Context context,
+                              @NonNull AppShortcut shortcut,
+                              int size,
+                              @NonNull IconCache iconCache) {
+        Bitmap bitmap = iconCache.acquire(shortcut, size);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        bitmap = iconCache.getPooledBitmap(size);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        }
+
+        if (!drawIcon(context, shortcut, bitmap)) {
+            iconCache.pool(bitmap);
+            return null;
+        }
+
+        iconCache.putAcquired(shortcut, size, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Draws the icon of the shortcut scaled into the bitmap which must be mutable
+     * Returns false if the icon could not be loaded
+     */
+    static boolean drawIcon(@NonNull Context context, @NonNull AppShortcut shortcut, @NonNull Bitmap target) {
+        if (shortcut.isLauncherAppsShortcut()) {
+            Drawable icon = LauncherAppsShortcuts.loadIcon(context, shortcut);
+            if (icon == null) {
+                return false;
+            }
+            draw(icon, target);
+            return true;
+        }
+
+        if (shortcut.getIconResId() == 0) {
+            // no icon
+            return false;
+        }
+
+        Resources resources;
+        try {
+            resources = PackageContextCache.get().getPackageContext(
+                    context, shortcut.getPackageName(), shortcut.getLastUpdateTime()).getResources();
+        } catch (PackageManager.NameNotFoundException e) {
+            e.printStackTrace();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        long start = ShortcutMetrics.start(config);
+
+        // bitmap icons are downsampled and drawn scaled
+        Bitmap decoded = decodeSampled(resources, shortcut.getIconResId(),
+                Math.max(target.getWidth(), target.getHeight()));
+        if (decoded != null) {
+            new Canvas(target).drawBitmap(decoded, null, new Rect(0, 0, target.getWidth(), target.getHeight()),
+                    new Paint(Paint.FILTER_BITMAP_FLAG));
+            decoded.recycle();
+            ShortcutMetrics.phase(config, shortcut.getPackageName(), Phase.DECODE_ICON, start);
+            return true;
+        }
+
+        // vector and adaptive icons have to be drawn
+        try {
+            draw(resources.getDrawable(shortcut.getIconResId(), null), target);
+            ShortcutMetrics.phase(config, shortcut.getPackageName(), Phase.DECODE_ICON, start);
+            return true;
+        } catch (Resources.NotFoundException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the bitmap resource downsampled close to the size
+     * or null if the resource is no bitmap
+     */
+    @Nullable
+    private static Bitmap decodeSampled(Resources resources, int resId, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, size);
+        return BitmapFactory.decodeResource(resources, resId, options);
+    }
+
+    private static int calculateInSampleSize(int width, int height, int size) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= size && height / (inSampleSize * 2) >= size) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static void draw(Drawable drawable, Bitmap target) {
+        drawable.setBounds(0, 0, target.getWidth(), target.getHeight());
+        drawable.draw(new Canvas(target));
+    }
+}
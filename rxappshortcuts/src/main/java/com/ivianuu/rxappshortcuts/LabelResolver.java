@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves shortcut labels lazily and caches them for the current locale
+ * The cache is dropped whenever the configuration changes
+ * Label getters can be called on the main thread so resolving never waits for the binder call limiter
+ */
+final class LabelResolver {
+
+    private static final LabelResolver INSTANCE = new LabelResolver();
+
+    private final ConcurrentMap<Key, String> labels = new ConcurrentHashMap<>();
+
+    private volatile Context context;
+    private volatile Locale locale;
+
+    private LabelResolver() {
+    }
+
+    /**
+     * Returns the shared instance
+     */
+    @NonNull
+    static LabelResolver get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Initializes this resolver with the application context of the context
+     */
+    void init(@NonNull Context context) {
+        if (this.context != null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (this.context != null) {
+                return;
+            }
+
+            Context applicationContext = context.getApplicationContext();
+            applicationContext.registerComponentCallbacks(new ComponentCallbacks() {
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                    // rotations and other changes keep the labels
+                    Locale newLocale = getLocale(newConfig);
+                    if (!newLocale.equals(locale)) {
+                        labels.clear();
+                        locale = newLocale;
+                    }
+                }
+
+                @Override
+                public void onLowMemory() {
+                    labels.clear();
+                }
+            });
+            this.context = applicationContext;
+        }
+    }
+
+    /**
+     * Returns the label of the package or null if the res id is 0 or it could not be resolved
+     */
+    @Nullable
+    String resolve(@NonNull PackageDescriptor packageDescriptor, int resId) {
+        if (resId == 0) {
+            return null;
+        }
+
+        Context context = this.context;
+        if (context == null) {
+            throw new IllegalStateException("RxAppShortcuts.init(context) has not been called");
+        }
+
+        Locale currentLocale = getLocale(context.getResources().getConfiguration());
+        if (!currentLocale.equals(locale)) {
+            // the configuration callback could be late
+            labels.clear();
+            locale = currentLocale;
+        }
+
+        Key key = new Key(packageDescriptor, resId);
+        String label = labels.get(key);
+        if (label != null) {
+            return label;
+        }
+
+        try {
+            label = PackageContextCache.get()
+                    .getPackageContext(context, packageDescriptor.getPackageName(),
+                            packageDescriptor.getLastUpdateTime(), false)
+                    .getString(resId);
+        } catch (PackageManager.NameNotFoundException | Resources.NotFoundException e) {
+            e.printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        labels.put(key, label);
+        return label;
+    }
+
+    /**
+     * Removes the cached labels of the package
+     */
+    void remove(@NonNull String packageName) {
+        for (Key key : labels.keySet()) {
+            if (key.packageName.equals(packageName)) {
+                labels.remove(key);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Locale getLocale(Configuration configuration) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return configuration.getLocales().get(0);
+        } else {
+            return configuration.locale;
+        }
+    }
+
+    private static final class Key {
+        private final String packageName;
+        private final long lastUpdateTime;
+        private final int resId;
+
+        private Key(PackageDescriptor packageDescriptor, int resId) {
+            this.packageName = packageDescriptor.getPackageName();
+            this.lastUpdateTime = packageDescriptor.getLastUpdateTime();
+            this.resId = resId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return lastUpdateTime == key.lastUpdateTime
+                    && resId == key.resId
+                    && packageName.equals(key.packageName);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = packageName.hashCode();
+            result = 31 * result + (int) (lastUpdateTime ^ (lastUpdateTime >>> 32));
+            result = 31 * result + resId;
+            return result;
+        }
+    }
+}
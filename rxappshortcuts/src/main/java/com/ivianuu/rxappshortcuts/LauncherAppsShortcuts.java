@@ -0,0 +1,305 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.annotation.TargetApi;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.LauncherApps;
+import android.content.pm.PackageInfo;
+import android.content.pm.ShortcutInfo;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Counter;
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Phase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrieves manifest shortcuts from the launcher apps service
+ * This is only possible on api 25 and above if we are allowed to host shortcuts,
+ * the system keeps the shortcuts in memory so no xml has to be parsed
+ */
+@TargetApi(Build.VERSION_CODES.N_MR1)
+final class LauncherAppsShortcuts {
+
+    // there is no callback when the default launcher changes so the permission is checked again from time to time
+    private static final long HOST_PERMISSION_MAX_AGE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static volatile HostPermission hostPermission;
+
+    private LauncherAppsShortcuts() {
+        // no instances
+    }
+
+    /**
+     * Returns the shortcuts of the package or null if the launcher apps service can't provide them
+     */
+    @Nullable
+    static PackageShortcuts load(@NonNull Context context,
+                                 @NonNull String packageName,
+                                 @NonNull ShortcutConfig config) throws Exception {
+        LauncherApps launcherApps = getLauncherApps(context, config);
+        if (launcherApps == null) {
+            return null;
+        }
+
+        if (!hasHostPermission(launcherApps, packageName, config)) {
+            return null;
+        }
+
+        // the activities are not needed
+        PackageInfo packageInfo = PackageInfoLoader.getPackageInfo(context, packageName, 0, config);
+
+        LauncherApps.ShortcutQuery query = new LauncherApps.ShortcutQuery()
+                .setPackage(packageName)
+                .setQueryFlags(LauncherApps.ShortcutQuery.FLAG_MATCH_MANIFEST);
+        List<ShortcutInfo> infos = getShortcuts(launcherApps, query, packageName, config);
+        if (infos == null) {
+            return null;
+        }
+
+        List<ShortcutInfo> sorted = new ArrayList<>();
+        Set<ComponentName> shortcutActivities = new HashSet<>();
+        for (ShortcutInfo info : infos) {
+            // manifest shortcuts always have an activity
+            if (info.getActivity() != null) {
+                sorted.add(info);
+                shortcutActivities.add(info.getActivity());
+            }
+        }
+
+        // the service returns the shortcuts in no particular order,
+        // they are sorted like the xml backend by activity in manifest order and by rank
+        Map<String, Integer> activityOrder = new HashMap<>();
+        if (shortcutActivities.size() > 1) {
+            // manifest shortcuts are only read from launcher activities
+            ActivityInfo[] launcherActivities = PackageInfoLoader.queryLauncherActivities(
+                    context, packageName, config);
+            for (int i = 0; i < launcherActivities.length; i++) {
+                activityOrder.put(launcherActivities[i].name, i);
+            }
+        }
+        Collections.sort(sorted, (a, b) -> {
+            int result = Integer.compare(indexOf(activityOrder, a), indexOf(activityOrder, b));
+            return result != 0 ? result : Integer.compare(a.getRank(), b.getRank());
+        });
+
+        // the package descriptor and activities will be shared by all shortcuts
+        PackageDescriptor packageDescriptor = PackageDescriptor.of(packageInfo);
+        Map<ComponentName, ComponentName> activities = new HashMap<>();
+
+        List<AppShortcut> shortcuts = new ArrayList<>(sorted.size());
+        for (ShortcutInfo info : sorted) {
+            ComponentName activity = activities.get(info.getActivity());
+            if (activity == null) {
+                activity = info.getActivity();
+                activities.put(activity, activity);
+            }
+
+            Set<String> categories = info.getCategories();
+            shortcuts.add(new AppShortcut(
+                    info.getId(),
+                    packageDescriptor,
+                    activity,
+                    info.isEnabled(),
+                    0,
+                    0,
+                    0,
+                    0,
+                    info.getRank(),
+                    null,
+                    categories != null ? categories : Collections.<String>emptySet(),
+                    new AppShortcut.Labels(
+                            toString(info.getShortLabel()),
+                            toString(info.getLongLabel()),
+                            toString(info.getDisabledMessage()))));
+        }
+
+        return new PackageShortcuts(packageInfo, ShortcutSet.of(shortcuts));
+    }
+
+    /**
+     * Returns if the shortcuts can still be served
+     * Shortcuts of the launcher apps service are unusable as soon as we lost the host permission
+     */
+    static boolean isUsable(@NonNull Context context,
+                            @NonNull PackageShortcuts shortcuts,
+                            @NonNull ShortcutConfig config) throws InterruptedException {
+        ShortcutSet shortcutSet = shortcuts.getShortcuts();
+        if (shortcutSet.isEmpty() || !shortcutSet.get(0).isLauncherAppsShortcut()) {
+            return true;
+        }
+
+        LauncherApps launcherApps = getLauncherApps(context, config);
+        return launcherApps != null && hasHostPermission(launcherApps, shortcuts.getPackageName(), config);
+    }
+
+    /**
+     * Returns the icon of the shortcut or null if it has none
+     */
+    @Nullable
+    static Drawable loadIcon(@NonNull Context context, @NonNull AppShortcut shortcut) {
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        LauncherApps launcherApps = getLauncherApps(context, config);
+        if (launcherApps == null) {
+            return null;
+        }
+
+        LauncherApps.ShortcutQuery query = new LauncherApps.ShortcutQuery()
+                .setPackage(shortcut.getPackageName())
+                .setShortcutIds(Collections.singletonList(shortcut.getId()))
+                .setQueryFlags(LauncherApps.ShortcutQuery.FLAG_MATCH_MANIFEST
+                        | LauncherApps.ShortcutQuery.FLAG_MATCH_PINNED);
+        try {
+            List<ShortcutInfo> infos = getShortcuts(launcherApps, query, shortcut.getPackageName(), config);
+            if (infos == null || infos.isEmpty()) {
+                return null;
+            }
+
+            long start = ShortcutMetrics.start(config);
+            BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+            binderCallLimiter.acquire();
+            try {
+                return launcherApps.getShortcutIconDrawable(infos.get(0),
+                        context.getResources().getDisplayMetrics().densityDpi);
+            } finally {
+                binderCallLimiter.release();
+                ShortcutMetrics.count(config, shortcut.getPackageName(), Counter.BINDER_CALLS, 1);
+                ShortcutMetrics.phase(config, shortcut.getPackageName(), Phase.DECODE_ICON, start);
+            }
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+            return null;
+        } catch (SecurityException e) {
+            hostPermission = null;
+            e.printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Starts the shortcut through the launcher apps service
+     */
+    static void startShortcut(@NonNull Context context, @NonNull AppShortcut shortcut) {
+        LauncherApps launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+        try {
+            launcherApps.startShortcut(shortcut.getPackageName(), shortcut.getId(),
+                    null, null, Process.myUserHandle());
+        } catch (SecurityException e) {
+            // we are not the default launcher anymore
+            hostPermission = null;
+            throw e;
+        }
+    }
+
+    private static boolean hasHostPermission(LauncherApps launcherApps,
+                                             String packageName,
+                                             ShortcutConfig config) throws InterruptedException {
+        HostPermission permission = hostPermission;
+        long now = SystemClock.elapsedRealtime();
+        if (permission != null && now - permission.checkedAt < HOST_PERMISSION_MAX_AGE_MILLIS) {
+            return permission.granted;
+        }
+
+        BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+        boolean granted;
+        binderCallLimiter.acquire();
+        try {
+            granted = launcherApps.hasShortcutHostPermission();
+        } catch (IllegalStateException e) {
+            // the user is locked
+            granted = false;
+        } finally {
+            binderCallLimiter.release();
+            ShortcutMetrics.count(config, packageName, Counter.BINDER_CALLS, 1);
+        }
+
+        hostPermission = new HostPermission(granted, now);
+        return granted;
+    }
+
+    @Nullable
+    private static LauncherApps getLauncherApps(Context context, ShortcutConfig config) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N_MR1 || !config.isLauncherAppsEnabled()) {
+            return null;
+        }
+        return (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+    }
+
+    @Nullable
+    private static List<ShortcutInfo> getShortcuts(LauncherApps launcherApps,
+                                                   LauncherApps.ShortcutQuery query,
+                                                   String packageName,
+                                                   ShortcutConfig config) throws InterruptedException {
+        long start = ShortcutMetrics.start(config);
+        BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+        binderCallLimiter.acquire();
+        try {
+            return launcherApps.getShortcuts(query, Process.myUserHandle());
+        } catch (IllegalStateException e) {
+            // the user is locked
+            e.printStackTrace();
+            return null;
+        } catch (SecurityException e) {
+            // we are not the default launcher anymore
+            hostPermission = null;
+            e.printStackTrace();
+            return null;
+        } finally {
+            binderCallLimiter.release();
+            ShortcutMetrics.count(config, packageName, Counter.BINDER_CALLS, 1);
+            ShortcutMetrics.phase(config, packageName, Phase.LAUNCHER_APPS, start);
+        }
+    }
+
+    private static int indexOf(Map<String, Integer> activityOrder, ShortcutInfo info) {
+        Integer index = activityOrder.get(info.getActivity().getClassName());
+        return index != null ? index : Integer.MAX_VALUE;
+    }
+
+    @Nullable
+    private static String toString(@Nullable CharSequence value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static final class HostPermission {
+        private final boolean granted;
+        private final long checkedAt;
+
+        private HostPermission(boolean granted, long checkedAt) {
+            this.granted = granted;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Counter;
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Phase;
+
+/**
+ * Caches package contexts so the resources of a package don't have to be rebuilt for every query
+ */
+final class PackageContextCache {
+
+    private static final int MAX_SIZE = 16;
+
+    private static final PackageContextCache INSTANCE = new PackageContextCache(MAX_SIZE);
+
+    private final LruCache<String, Entry> cache;
+
+    private PackageContextCache(int maxSize) {
+        cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Returns the shared instance
+     */
+    @NonNull
+    static PackageContextCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the package context for the package name
+     * The cached context will be recreated if the package was updated
+     */
+    @NonNull
+    Context getPackageContext(@NonNull Context context,
+                              @NonNull String packageName,
+                              long lastUpdateTime) throws PackageManager.NameNotFoundException, InterruptedException {
+        return getPackageContext(context, packageName, lastUpdateTime, true);
+    }
+
+    /**
+     * Returns the package context for the package name
+     * If limited is false the call does not wait for the binder call limiter
+     * which should be used by callers which could run on the main thread
+     */
+    @NonNull
+    Context getPackageContext(@NonNull Context context,
+                              @NonNull String packageName,
+                              long lastUpdateTime,
+                              boolean limited) throws PackageManager.NameNotFoundException, InterruptedException {
+        Entry entry = cache.get(packageName);
+        if (entry != null && entry.lastUpdateTime == lastUpdateTime) {
+            return entry.packageContext;
+        }
+
+        Context packageContext;
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        long start = ShortcutMetrics.start(config);
+        BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+        if (limited) {
+            binderCallLimiter.acquire();
+        }
+        try {
+            packageContext = context.createPackageContext(packageName, 0);
+        } finally {
+            if (limited) {
+                binderCallLimiter.release();
+            }
+            ShortcutMetrics.count(config, packageName, Counter.BINDER_CALLS, 1);
+            ShortcutMetrics.phase(config, packageName, Phase.CREATE_PACKAGE_CONTEXT, start);
+        }
+        cache.put(packageName, new Entry(packageContext, lastUpdateTime));
+        return packageContext;
+    }
+
+    /**
+     * Removes the cached context of the package
+     */
+    void remove(@NonNull String packageName) {
+        cache.remove(packageName);
+    }
+
+    /**
+     * Removes all cached contexts
+     */
+    void clear() {
+        cache.evictAll();
+    }
+
+    private static final class Entry {
+        private final Context packageContext;
+        private final long lastUpdateTime;
+
+        private Entry(Context packageContext, long lastUpdateTime) {
+            this.packageContext = packageContext;
+            this.lastUpdateTime = lastUpdateTime;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.pm.PackageInfo;
+import android.support.annotation.NonNull;
+
+/**
+ * The package state which is shared by all shortcuts of a package
+ */
+final class PackageDescriptor {
+
+    private final String packageName;
+    private final int versionCode;
+    private final long lastUpdateTime;
+
+    PackageDescriptor(@NonNull String packageName, int versionCode, long lastUpdateTime) {
+        this.packageName = packageName;
+        this.versionCode = versionCode;
+        this.lastUpdateTime = lastUpdateTime;
+    }
+
+    /**
+     * Returns a descriptor of the package info
+     */
+    @NonNull
+    static PackageDescriptor of(@NonNull PackageInfo packageInfo) {
+        return new PackageDescriptor(
+                packageInfo.packageName, packageInfo.versionCode, packageInfo.lastUpdateTime);
+    }
+
+    /**
+     * Returns the package name
+     */
+    @NonNull
+    String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * Returns the version code
+     */
+    int getVersionCode() {
+        return versionCode;
+    }
+
+    /**
+     * Returns the last update time
+     */
+    long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.support.annotation.NonNull;
+
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Counter;
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Phase;
+
+import java.util.List;
+
+/**
+ * Loads package infos with the activities which should be scanned for shortcuts
+ */
+final class PackageInfoLoader {
+
+    private PackageInfoLoader() {
+        // no instances
+    }
+
+    /**
+     * Returns the package info with the activities of the retrieval mode
+     * The passed package info has to be loaded without flags
+     * and is reused if only the launcher activities are needed
+     */
+    @NonNull
+    static PackageInfo loadActivities(@NonNull Context context,
+                                      @NonNull PackageInfo packageInfo,
+                                      @NonNull RetrievalMode retrievalMode,
+                                      @NonNull ShortcutConfig config) throws Exception {
+        String packageName = packageInfo.packageName;
+        if (retrievalMode == RetrievalMode.ALL_ACTIVITIES) {
+            return getAllActivities(context, packageName, config);
+        }
+
+        // only the launcher activities will be transferred
+        packageInfo.activities = queryLauncherActivities(context, packageName, config);
+
+        if (retrievalMode == RetrievalMode.LAUNCHER_ACTIVITIES_WITH_FALLBACK
+                && PackageShortcutReader.getShortcutActivities(packageInfo).isEmpty()) {
+            return getAllActivities(context, packageName, config);
+        }
+
+        return packageInfo;
+    }
+
+    private static PackageInfo getAllActivities(Context context,
+                                                String packageName,
+                                                ShortcutConfig config) throws Exception {
+        return getPackageInfo(context, packageName,
+                PackageManager.GET_ACTIVITIES | PackageManager.GET_META_DATA, config);
+    }
+
+    /**
+     * Returns the package info of the package limited by the binder call limiter of the config
+     */
+    @NonNull
+    static PackageInfo getPackageInfo(@NonNull Context context,
+                                      @NonNull String packageName,
+                                      int flags,
+                                      @NonNull ShortcutConfig config) throws Exception {
+        long start = ShortcutMetrics.start(config);
+        BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+        binderCallLimiter.acquire();
+        try {
+            return context.getPackageManager().getPackageInfo(packageName, flags);
+        } finally {
+            binderCallLimiter.release();
+            ShortcutMetrics.count(config, packageName, Counter.BINDER_CALLS, 1);
+            ShortcutMetrics.phase(config, packageName, Phase.GET_PACKAGE_INFO, start);
+        }
+    }
+
+    /**
+     * Returns the main launcher activities of the package in manifest order
+     */
+    @NonNull
+    static ActivityInfo[] queryLauncherActivities(@NonNull Context context,
+                                                  @NonNull String packageName,
+                                                  @NonNull ShortcutConfig config) throws Exception {
+        Intent intent = new Intent(Intent.ACTION_MAIN)
+                .addCategory(Intent.CATEGORY_LAUNCHER)
+                .setPackage(packageName);
+
+        List<ResolveInfo> resolveInfos;
+        long start = ShortcutMetrics.start(config);
+        BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+        binderCallLimiter.acquire();
+        try {
+            resolveInfos = context.getPackageManager()
+                    .queryIntentActivities(intent, PackageManager.GET_META_DATA);
+        } finally {
+            binderCallLimiter.release();
+            ShortcutMetrics.count(config, packageName, Counter.BINDER_CALLS, 1);
+            ShortcutMetrics.phase(config, packageName, Phase.GET_PACKAGE_INFO, start);
+        }
+
+        ActivityInfo[] activities = new ActivityInfo[resolveInfos.size()];
+        for (int i = 0; i < activities.length; i++) {
+            activities[i] = resolveInfos.get(i).activityInfo;
+        }
+        return activities;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.res.XmlResourceParser;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Counter;
+import com.ivianuu.rxappshortcuts.ShortcutMetricsListener.Phase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the shortcuts of all activities of a package one by one
+ */
+final class PackageShortcutReader {
+
+    private static final String METADATA_KEY = "android.app.shortcuts";
+
+    private final Context context;
+    private final PackageInfo packageInfo;
+    private final PackageDescriptor packageDescriptor;
+    private final ExportedActivities exportedActivities;
+    private final ShortcutConfig config;
+    private final CancellationSignal cancellationSignal;
+    private final Set<String> ids = new HashSet<>();
+
+    private Context packageContext;
+    private int activityIndex = 0;
+    private ShortcutParser currentParser;
+
+    // metrics of the current activity
+    private long parseNanos;
+    private int duplicateCount;
+
+    PackageShortcutReader(@NonNull Context context,
+                          @NonNull PackageInfo packageInfo,
+                          @Nullable CancellationSignal cancellationSignal) {
+        this.context = context;
+        this.packageInfo = packageInfo;
+        this.packageDescriptor = PackageDescriptor.of(packageInfo);
+        this.exportedActivities = new ExportedActivities(context, packageInfo);
+        this.config = RxAppShortcuts.getConfig();
+        this.cancellationSignal = cancellationSignal;
+    }
+
+    /**
+     * Returns the next shortcut of the package or null if there are no more shortcuts
+     * or the signal was cancelled
+     */
+    @Nullable
+    AppShortcut next() throws Exception {
+        while (true) {
+            if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                return null;
+            }
+
+            if (currentParser != null) {
+                long start = ShortcutMetrics.start(config);
+                AppShortcut shortcut = currentParser.next();
+                parseNanos += ShortcutMetrics.elapsed(config, start);
+                if (shortcut != null) {
+                    if (!ids.add(shortcut.getId())) {
+                        // already declared by a previous activity
+                        duplicateCount++;
+                        continue;
+                    }
+                    ShortcutMetrics.count(config, packageInfo.packageName, Counter.SHORTCUTS_PARSED, 1);
+                    return shortcut;
+                }
+
+                // activity finished
+                closeCurrentParser();
+            }
+
+            if (packageInfo.activities == null || activityIndex >= packageInfo.activities.length) {
+                return null;
+            }
+
+            ActivityInfo activityInfo = packageInfo.activities[activityIndex++];
+            int resId = getShortcutsResId(activityInfo);
+            if (resId == 0) {
+                // no shortcuts
+                continue;
+            }
+
+            if (packageContext == null) {
+                // the package context will be shared by all activities
+                packageContext = PackageContextCache.get()
+                        .getPackageContext(context, packageInfo.packageName, packageInfo.lastUpdateTime);
+            }
+
+            currentParser = new ShortcutParser(context, packageContext,
+                    loadXml(packageContext, resId, packageInfo.packageName, config),
+                    activityInfo, packageDescriptor, exportedActivities, cancellationSignal);
+        }
+    }
+
+    /**
+     * Returns all activities of the package which declare shortcuts
+     */
+    @NonNull
+    static List<ActivityInfo> getShortcutActivities(@NonNull PackageInfo packageInfo) {
+        if (packageInfo.activities == null) {
+            return Collections.emptyList();
+        }
+
+        List<ActivityInfo> activities = new ArrayList<>();
+        for (ActivityInfo activityInfo : packageInfo.activities) {
+            if (getShortcutsResId(activityInfo) != 0) {
+                activities.add(activityInfo);
+            }
+        }
+        return activities;
+    }
+
+    /**
+     * Returns the resource id of the shortcuts xml of the activity or 0 if it declares no shortcuts
+     */
+    static int getShortcutsResId(@NonNull ActivityInfo activityInfo) {
+        if (activityInfo.metaData == null) {
+            // no meta data
+            return 0;
+        }
+
+        return activityInfo.metaData.getInt(METADATA_KEY);
+    }
+
+    /**
+     * Reads all shortcuts of the activity
+     * The result is incomplete if the signal was cancelled
+     */
+    @NonNull
+    static List<AppShortcut> readActivity(@NonNull Context context,
+                                          @NonNull Context packageContext,
+                                          @NonNull ActivityInfo activityInfo,
+                                          @NonNull PackageDescriptor packageDescriptor,
+                                          @NonNull ExportedActivities exportedActivities,
+                                          @NonNull CancellationSignal cancellationSignal) throws Exception {
+        if (cancellationSignal.isCanceled()) {
+            return Collections.emptyList();
+        }
+
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        String packageName = packageDescriptor.getPackageName();
+        ShortcutParser parser = new ShortcutParser(context, packageContext,
+                loadXml(packageContext, getShortcutsResId(activityInfo), packageName, config),
+                activityInfo, packageDescriptor, exportedActivities, cancellationSignal);
+        List<AppShortcut> shortcuts = new ArrayList<>();
+        long start = ShortcutMetrics.start(config);
+        try {
+            AppShortcut shortcut;
+            while ((shortcut = parser.next()) != null) {
+                shortcuts.add(shortcut);
+            }
+        } finally {
+            parser.close();
+        }
+        ShortcutMetrics.phase(config, packageName, Phase.PARSE_XML, start);
+        ShortcutMetrics.count(config, packageName, Counter.ACTIVITIES_SCANNED, 1);
+        ShortcutMetrics.count(config, packageName, Counter.SHORTCUTS_REJECTED, parser.getRejectedCount());
+        return shortcuts;
+    }
+
+    private static XmlResourceParser loadXml(Context packageContext,
+                                             int resId,
+                                             String packageName,
+                                             ShortcutConfig config) {
+        long start = ShortcutMetrics.start(config);
+        XmlResourceParser parser = packageContext.getResources().getXml(resId);
+        ShortcutMetrics.phase(config, packageName, Phase.LOAD_XML, start);
+        return parser;
+    }
+
+    /**
+     * Closes the currently open parser
+     */
+    void close() {
+        if (currentParser != null) {
+            closeCurrentParser();
+        }
+    }
+
+    private void closeCurrentParser() {
+        currentParser.close();
+
+        String packageName = packageInfo.packageName;
+        ShortcutMetrics.duration(config, packageName, Phase.PARSE_XML, parseNanos);
+        ShortcutMetrics.count(config, packageName, Counter.ACTIVITIES_SCANNED, 1);
+        ShortcutMetrics.count(config, packageName, Counter.SHORTCUTS_REJECTED,
+                currentParser.getRejectedCount() + duplicateCount);
+
+        currentParser = null;
+        parseNanos = 0;
+        duplicateCount = 0;
+    }
+}
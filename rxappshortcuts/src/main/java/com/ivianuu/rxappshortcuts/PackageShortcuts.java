@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.pm.PackageInfo;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+
+
+/**
+ * The shortcuts of a single package
+ */
+public final class PackageShortcuts implements Parcelable {
+
+    public static final Creator<PackageShortcuts> CREATOR = new Creator<PackageShortcuts>() {
+        @Override
+        public PackageShortcuts createFromParcel(Parcel source) {
+            return new PackageShortcuts(source.readString(), source.readInt(), source.readLong(),
+                    ShortcutSet.CREATOR.createFromParcel(source));
+        }
+
+        @Override
+        public PackageShortcuts[] newArray(int size) {
+            return new PackageShortcuts[size];
+        }
+    };
+
+    private final String packageName;
+    private final int versionCode;
+    private final long lastUpdateTime;
+    private final ShortcutSet shortcuts;
+
+    PackageShortcuts(@NonNull PackageInfo packageInfo, @NonNull ShortcutSet shortcuts) {
+        this(packageInfo.packageName, packageInfo.versionCode, packageInfo.lastUpdateTime, shortcuts);
+    }
+
+    private PackageShortcuts(String packageName, int versionCode, long lastUpdateTime, ShortcutSet shortcuts) {
+        this.packageName = packageName;
+        this.versionCode = versionCode;
+        this.lastUpdateTime = lastUpdateTime;
+        this.shortcuts = shortcuts;
+    }
+
+    /**
+     * Returns the package name
+     */
+    @NonNull
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * Returns the version code of the package when the shortcuts were parsed
+     */
+    public int getVersionCode() {
+        return versionCode;
+    }
+
+    /**
+     * Returns the last update time of the package when the shortcuts were parsed
+     */
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    /**
+     * Returns if the shortcuts are still up to date for the package info
+     */
+    boolean isUpToDate(@NonNull PackageInfo packageInfo) {
+        return versionCode == packageInfo.versionCode
+                && lastUpdateTime == packageInfo.lastUpdateTime;
+    }
+
+    /**
+     * Returns the shortcuts of the package
+     */
+    @NonNull
+    public ShortcutSet getShortcuts() {
+        return shortcuts;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(packageName);
+        dest.writeInt(versionCode);
+        dest.writeLong(lastUpdateTime);
+        shortcuts.writeToParcel(dest, flags);
+    }
+}
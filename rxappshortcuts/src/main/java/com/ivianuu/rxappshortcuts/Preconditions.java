@@ -36,4 +36,13 @@ final class Preconditions {
             throw new NullPointerException(message);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Throws a iae if the condition is false
+     */
+    static void checkArgument(boolean condition, @NonNull String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Warms shortcuts and icons on a background priority thread
+ * Prefetching pauses between packages and icons while foreground queries are running
+ */
+final class Prefetcher {
+
+    private static final Prefetcher INSTANCE = new Prefetcher();
+
+    // a stalled foreground query should not stop prefetching forever
+    private static final long MAX_IDLE_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    private final Object lock = new Object();
+    private int foregroundQueries = 0;
+
+    private final Scheduler scheduler = Schedulers.from(Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "RxAppShortcuts-Prefetch");
+        thread.setDaemon(true);
+        return thread;
+    }));
+
+    private Prefetcher() {
+    }
+
+    /**
+     * Returns the shared instance
+     */
+    @NonNull
+    static Prefetcher get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a completable which parses the shortcuts of the packages one by one
+     * If icon size is greater than 0 the icons will be rendered into the icon cache as well
+     * Packages which fail are skipped
+     */
+    @CheckResult @NonNull
+    Completable prefetch(@NonNull Context context, @NonNull Collection<String> packageNames, int iconSize) {
+        return Flowable.fromIterable(new ArrayList<>(packageNames))
+                .concatMap(packageName -> Completable.fromAction(this::awaitIdle)
+                        .andThen(ShortcutRepository.get().getShortcuts(context, packageName, scheduler))
+                        // the parse result is shared with foreground queries
+                        // so never block while it is delivered
+                        .observeOn(scheduler)
+                        .flattenAsFlowable(PackageShortcuts::getShortcuts)
+                        .filter(shortcut -> iconSize > 0 && shortcut.hasIcon())
+                        .concatMap(shortcut -> Completable.fromAction(() -> {
+                            awaitIdle();
+                            // cached as reusable icon for icon loaders
+                            IconCache iconCache = RxAppShortcuts.getConfig().getIconCache();
+                            Bitmap icon = IconLoader.acquireIcon(context, shortcut, iconSize, iconCache);
+                            if (icon != null) {
+                                iconCache.release(icon);
+                            }
+                        }).toFlowable())
+                        // prefetching is best effort
+                        .onErrorResumeNext(Flowable.empty()))
+                .ignoreElements()
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Tracks the single as foreground query while it is subscribed
+     */
+    @CheckResult @NonNull
+    <T> Single<T> foreground(@NonNull Single<T> single) {
+        return single.doOnSubscribe(d -> onForegroundStarted())
+                .doFinally(this::onForegroundFinished);
+    }
+
+    /**
+     * Tracks the flowable as foreground query while it is subscribed
+     */
+    @CheckResult @NonNull
+    <T> Flowable<T> foreground(@NonNull Flowable<T> flowable) {
+        return flowable.doOnSubscribe(s -> onForegroundStarted())
+                .doFinally(this::onForegroundFinished);
+    }
+
+    /**
+     * Tracks the maybe as foreground query while it is subscribed
+     */
+    @CheckResult @NonNull
+    <T> Maybe<T> foreground(@NonNull Maybe<T> maybe) {
+        return maybe.doOnSubscribe(d -> onForegroundStarted())
+                .doFinally(this::onForegroundFinished);
+    }
+
+    private void onForegroundStarted() {
+        synchronized (lock) {
+            foregroundQueries++;
+        }
+    }
+
+    private void onForegroundFinished() {
+        synchronized (lock) {
+            foregroundQueries--;
+            if (foregroundQueries == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Blocks until no foreground query is running or the max idle wait has passed
+     */
+    private void awaitIdle() throws InterruptedException {
+        synchronized (lock) {
+            long deadline = System.currentTimeMillis() + MAX_IDLE_WAIT_MILLIS;
+            long remaining = MAX_IDLE_WAIT_MILLIS;
+            while (foregroundQueries > 0 && remaining > 0) {
+                lock.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+/**
+ * Controls which activities of a package are scanned for shortcuts
+ */
+public enum RetrievalMode {
+    /**
+     * Scans all activities of the package
+     */
+    ALL_ACTIVITIES,
+    /**
+     * Scans only the main launcher activities of the package
+     * These are the only activities which the system reads shortcuts from
+     */
+    LAUNCHER_ACTIVITIES,
+    /**
+     * Scans only the main launcher activities of the package
+     * and falls back to all activities if none of them declares shortcuts
+     */
+    LAUNCHER_ACTIVITIES_WITH_FALLBACK
+}
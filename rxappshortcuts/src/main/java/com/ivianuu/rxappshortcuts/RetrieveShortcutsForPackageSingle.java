@@ -19,78 +19,210 @@ package com.ivianuu.rxappshortcuts;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageInfo;
-import android.content.pm.PackageManager;
-import android.content.res.XmlResourceParser;
+import android.os.CancellationSignal;
 import android.support.annotation.CheckResult;
 import android.support.annotation.NonNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.SingleEmitter;
 import io.reactivex.SingleOnSubscribe;
-import io.reactivex.schedulers.Schedulers;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposables;
 
 /**
  * Fetches app shortcuts for the passed package
  */
-final class RetrieveShortcutsForPackageSingle implements SingleOnSubscribe<List<AppShortcut>> {
-
-    private static final String METADATA_KEY = "android.app.shortcuts";
+final class RetrieveShortcutsForPackageSingle implements SingleOnSubscribe<PackageShortcuts> {
 
     private Context context;
     private String packageName;
+    private RetrievalMode retrievalMode;
+    private Scheduler scheduler;
 
-    private RetrieveShortcutsForPackageSingle(Context context, String packageName) {
+    private RetrieveShortcutsForPackageSingle(Context context,
+                                              String packageName,
+                                              RetrievalMode retrievalMode,
+                                              Scheduler scheduler) {
         this.context = context;
         this.packageName = packageName;
+        this.retrievalMode = retrievalMode;
+        this.scheduler = scheduler;
     }
 
     /**
      * Returns a single which emits the app shortcuts for the passed package
+     * The activities of the retrieval mode are scanned and the work is done on the scheduler
+     * Parsing stops as soon as the single is disposed or the package timeout has elapsed
      */
     @CheckResult @NonNull
-    static Single<List<AppShortcut>> create(Context context, String packageName) {
-        return Single.create(new RetrieveShortcutsForPackageSingle(context, packageName))
-                .subscribeOn(Schedulers.computation());
+    static Single<PackageShortcuts> create(Context context,
+                                           String packageName,
+                                           RetrievalMode retrievalMode,
+                                           Scheduler scheduler) {
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        Single<PackageShortcuts> single = Single.create(
+                new RetrieveShortcutsForPackageSingle(context, packageName, retrievalMode, scheduler))
+                .subscribeOn(scheduler);
+
+        long timeoutMillis = config.getPackageTimeoutMillis();
+        if (timeoutMillis > 0) {
+            // the timeout disposes the parse which frees the worker
+            single = single.timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return single;
     }
 
     @Override
-    public void subscribe(SingleEmitter<List<AppShortcut>> e) throws Exception {
-        List<AppShortcut> appShortcuts = new ArrayList<>();
-
-        PackageInfo packageInfo = context.getPackageManager().getPackageInfo(
-                packageName, PackageManager.GET_ACTIVITIES | PackageManager.GET_META_DATA);
-
-        if (packageInfo.activities != null) {
-            // loop trough activity infos
-            for (ActivityInfo activityInfo : packageInfo.activities) {
-                if (activityInfo.metaData == null) {
-                    // no meta data
-                    continue;
-                }
+    public void subscribe(SingleEmitter<PackageShortcuts> e) throws Exception {
+        // cancels running parsers as soon as we get disposed
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        CompositeDisposable disposables = new CompositeDisposable();
+        disposables.add(Disposables.fromAction(cancellationSignal::cancel));
+        e.setDisposable(disposables);
+
+        try {
+            retrieve(e, cancellationSignal, disposables);
+        } catch (Exception ex) {
+            // disposing interrupts the worker so binder calls waiting for the limiter fail,
+            // errors after disposal are dropped instead of being sent to the global error handler
+            e.tryOnError(ex);
+        }
+    }
 
-                XmlResourceParser resourceParser = activityInfo.loadXmlMetaData(context.getPackageManager(), METADATA_KEY);
+    private void retrieve(SingleEmitter<PackageShortcuts> e,
+                          CancellationSignal cancellationSignal,
+                          CompositeDisposable disposables) throws Exception {
+        ShortcutConfig config = RxAppShortcuts.getConfig();
 
-                if (resourceParser == null) {
-                    // should not happen
-                    continue;
-                }
+        // the system already keeps the shortcuts in memory so they are not indexed
+        PackageShortcuts launcherAppsShortcuts = LauncherAppsShortcuts.load(context, packageName, config);
+        if (launcherAppsShortcuts != null) {
+            if (!e.isDisposed()) {
+                e.onSuccess(launcherAppsShortcuts);
+            }
+            return;
+        }
 
-                // parse the shortcuts
-                List<AppShortcut> shortcuts = ShortcutParser.parseShortcuts(
-                        context, resourceParser, activityInfo, packageName);
-                // add the result
-                if (shortcuts != null) {
-                    appShortcuts.addAll(shortcuts);
+        // the version is enough to validate the index
+        PackageInfo versionInfo = PackageInfoLoader.getPackageInfo(context, packageName, 0, config);
+        if (e.isDisposed()) {
+            return;
+        }
+
+        ShortcutIndex shortcutIndex = config.getShortcutIndex();
+        if (shortcutIndex != null) {
+            ShortcutSet indexedShortcuts = shortcutIndex.read(versionInfo, retrievalMode);
+            if (indexedShortcuts != null) {
+                if (!e.isDisposed()) {
+                    e.onSuccess(new PackageShortcuts(versionInfo, indexedShortcuts));
                 }
+                return;
             }
         }
 
-        if (!e.isDisposed()) {
-            e.onSuccess(appShortcuts);
+        PackageInfo packageInfo = PackageInfoLoader.loadActivities(context, versionInfo, retrievalMode, config);
+        if (e.isDisposed()) {
+            return;
+        }
+
+        List<ActivityInfo> activities = PackageShortcutReader.getShortcutActivities(packageInfo);
+        if (activities.isEmpty()) {
+            onParsed(e, packageInfo, retrievalMode, shortcutIndex, ShortcutSet.empty());
+            return;
+        }
+
+        // the package context will be shared by all activities
+        Context packageContext = PackageContextCache.get()
+                .getPackageContext(context, packageName, packageInfo.lastUpdateTime);
+        if (e.isDisposed()) {
+            return;
+        }
+
+        // the package descriptor will be shared by all shortcuts
+        PackageDescriptor packageDescriptor = PackageDescriptor.of(packageInfo);
+        // the exported states will be shared by all activities
+        ExportedActivities exportedActivities = new ExportedActivities(context, packageInfo);
+
+        if (activities.size() == 1) {
+            onParsed(e, packageInfo, retrievalMode, shortcutIndex, ShortcutSet.of(readActivity(
+                    context, packageContext, activities.get(0), packageDescriptor,
+                    exportedActivities, cancellationSignal)));
+            return;
+        }
+
+        // parse all activities in parallel but keep their order
+        disposables.add(Flowable.fromIterable(activities)
+                .concatMapEager(activityInfo -> Flowable.fromCallable(() -> readActivity(
+                        context, packageContext, activityInfo, packageDescriptor,
+                        exportedActivities, cancellationSignal))
+                        .subscribeOn(scheduler))
+                .toList()
+                .subscribe(results -> onParsed(e, packageInfo, retrievalMode, shortcutIndex,
+                        merge(config, packageName, results)), e::tryOnError));
+    }
+
+    /**
+     * Reads the shortcuts of the activity
+     * Failures caused by the cancellation return no shortcuts because nobody is interested anymore
+     */
+    private static List<AppShortcut> readActivity(Context context,
+                                                  Context packageContext,
+                                                  ActivityInfo activityInfo,
+                                                  PackageDescriptor packageDescriptor,
+                                                  ExportedActivities exportedActivities,
+                                                  CancellationSignal cancellationSignal) throws Exception {
+        try {
+            return PackageShortcutReader.readActivity(context, packageContext, activityInfo,
+                    packageDescriptor, exportedActivities, cancellationSignal);
+        } catch (Exception e) {
+            if (cancellationSignal.isCanceled()) {
+                return Collections.emptyList();
+            }
+            throw e;
+        }
+    }
+
+    private static void onParsed(SingleEmitter<PackageShortcuts> e,
+                                 PackageInfo packageInfo,
+                                 RetrievalMode retrievalMode,
+                                 ShortcutIndex shortcutIndex,
+                                 ShortcutSet shortcuts) {
+        if (e.isDisposed()) {
+            // the shortcuts might be incomplete
+            return;
+        }
+
+        ShortcutMetrics.count(RxAppShortcuts.getConfig(), packageInfo.packageName,
+                ShortcutMetricsListener.Counter.SHORTCUTS_PARSED, shortcuts.size());
+
+        if (shortcutIndex != null) {
+            shortcutIndex.write(packageInfo, retrievalMode, shortcuts);
+        }
+
+        e.onSuccess(new PackageShortcuts(packageInfo, shortcuts));
+    }
+
+    /**
+     * Merges the shortcuts of all activities in activity order
+     * If a id is declared multiple times the first one wins
+     */
+    private static ShortcutSet merge(ShortcutConfig config, String packageName, List<List<AppShortcut>> results) {
+        List<AppShortcut> shortcuts = new ArrayList<>();
+        for (List<AppShortcut> result : results) {
+            shortcuts.addAll(result);
         }
+        ShortcutSet shortcutSet = ShortcutSet.of(shortcuts);
+        ShortcutMetrics.count(config, packageName,
+                ShortcutMetricsListener.Counter.SHORTCUTS_REJECTED, shortcuts.size() - shortcutSet.size());
+        return shortcutSet;
     }
 
 }
@@ -17,13 +17,25 @@
 package com.ivianuu.rxappshortcuts;
 
 import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.CheckResult;
 import android.support.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 
+import static com.ivianuu.rxappshortcuts.Preconditions.checkArgument;
 import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
 
 /**
@@ -31,17 +43,254 @@ import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
  */
 public final class RxAppShortcuts {
 
+    private static final int DEFAULT_MAX_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+
+    private static volatile ShortcutConfig config = ShortcutConfig.builder().build();
+
     private RxAppShortcuts() {
         // no instances
     }
 
+    /**
+     * Initializes the library with the application context
+     * This is done by every query and only needs to be called
+     * in processes which receive shortcuts from other processes
+     */
+    public static void init(@NonNull Context context) {
+        checkNotNull(context, "context == null");
+        LabelResolver.get().init(context);
+    }
+
     /**
      * Returns the shortcuts for the package
      */
     @CheckResult @NonNull
-    public static Single<List<AppShortcut>> getShortcutsFor(@NonNull Context context, @NonNull String packageName) {
+    public static Single<ShortcutSet> getShortcutsFor(@NonNull Context context, @NonNull String packageName) {
         checkNotNull(context, "context == null");
+        init(context);
         checkNotNull(packageName, "packageName == null");
-        return RetrieveShortcutsForPackageSingle.create(context, packageName);
+        return Prefetcher.get().foreground(ShortcutRepository.get().getShortcuts(context, packageName)
+                .map(PackageShortcuts::getShortcuts));
+    }
+
+    /**
+     * Returns at most max count enabled shortcuts for the package in activity and rank order
+     * Parsing stops as soon as enough shortcuts were found so the result is not memoized
+     */
+    @CheckResult @NonNull
+    public static Single<ShortcutSet> getShortcutsFor(@NonNull Context context,
+                                                      @NonNull String packageName,
+                                                      int maxCount) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkNotNull(packageName, "packageName == null");
+        checkArgument(maxCount > 0, "maxCount <= 0");
+        // take cancels the stream which closes the parser
+        return Prefetcher.get().foreground(StreamShortcutsForPackageFlowable.create(context, packageName)
+                .filter(AppShortcut::isEnabled)
+                .take(maxCount)
+                .toList()
+                .map(ShortcutSet::of));
+    }
+
+    /**
+     * Emits the shortcuts for the package one by one as soon as they are parsed
+     * Shortcuts are parsed on demand so downstream backpressure is honored
+     */
+    @CheckResult @NonNull
+    public static Flowable<AppShortcut> streamShortcutsFor(@NonNull Context context, @NonNull String packageName) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkNotNull(packageName, "packageName == null");
+        // not tracked as foreground query because a slow subscriber could hold it open for long
+        return StreamShortcutsForPackageFlowable.create(context, packageName);
+    }
+
+    /**
+     * Parses the shortcuts of the packages on a background priority thread
+     * so later queries for them are served from memory
+     * Prefetching pauses while other queries are running and stops when disposed
+     */
+    @CheckResult @NonNull
+    public static Completable prefetch(@NonNull Context context, @NonNull Collection<String> packageNames) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkNotNull(packageNames, "packageNames == null");
+        return Prefetcher.get().prefetch(context, packageNames, 0);
+    }
+
+    /**
+     * Parses the shortcuts of the packages and renders their icons at the size in pixels
+     * on a background priority thread so later queries for them are served from memory
+     * Prefetching pauses while other queries are running and stops when disposed
+     */
+    @CheckResult @NonNull
+    public static Completable prefetch(@NonNull Context context,
+                                       @NonNull Collection<String> packageNames,
+                                       int iconSize) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkNotNull(packageNames, "packageNames == null");
+        checkArgument(iconSize > 0, "iconSize <= 0");
+        return Prefetcher.get().prefetch(context, packageNames, iconSize);
+    }
+
+    /**
+     * Returns the shortcuts for each of the packages
+     * Packages which are not installed or fail to parse are skipped
+     */
+    @CheckResult @NonNull
+    public static Flowable<PackageShortcuts> getShortcutsForPackages(@NonNull Context context,
+                                                                     @NonNull Collection<String> packageNames) {
+        return getShortcutsForPackages(context, packageNames, DEFAULT_MAX_CONCURRENCY, true);
+    }
+
+    /**
+     * Returns the shortcuts for each of the packages
+     * At most max concurrency packages will be queried at the same time
+     * If ordered is true the results will be emitted in the order of the package names
+     * Packages which are not installed or fail to parse are skipped
+     */
+    @CheckResult @NonNull
+    public static Flowable<PackageShortcuts> getShortcutsForPackages(@NonNull Context context,
+                                                                     @NonNull Collection<String> packageNames,
+                                                                     int maxConcurrency,
+                                                                     boolean ordered) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkNotNull(packageNames, "packageNames == null");
+        checkArgument(maxConcurrency > 0, "maxConcurrency <= 0");
+        return getShortcutsForPackages(context, Flowable.fromIterable(new ArrayList<>(packageNames)),
+                maxConcurrency, ordered);
+    }
+
+    /**
+     * Returns the shortcuts of all installed packages
+     */
+    @CheckResult @NonNull
+    public static Flowable<PackageShortcuts> getAllShortcuts(@NonNull Context context) {
+        return getAllShortcuts(context, DEFAULT_MAX_CONCURRENCY, false);
+    }
+
+    /**
+     * Returns the shortcuts of all installed packages
+     * At most max concurrency packages will be queried at the same time
+     * If ordered is true the results will be emitted in the order of the installed packages
+     */
+    @CheckResult @NonNull
+    public static Flowable<PackageShortcuts> getAllShortcuts(@NonNull Context context,
+                                                             int maxConcurrency,
+                                                             boolean ordered) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkArgument(maxConcurrency > 0, "maxConcurrency <= 0");
+        ShortcutConfig config = RxAppShortcuts.config;
+        Flowable<String> packageNames = Flowable.defer(() -> {
+            List<PackageInfo> packageInfos;
+            BinderCallLimiter binderCallLimiter = config.getBinderCallLimiter();
+            try {
+                binderCallLimiter.acquire();
+            } catch (InterruptedException e) {
+                // cancelling interrupts the worker, an error would go to the global error handler
+                return Flowable.empty();
+            }
+            try {
+                packageInfos = context.getPackageManager().getInstalledPackages(0);
+            } finally {
+                binderCallLimiter.release();
+            }
+            List<String> names = new ArrayList<>(packageInfos.size());
+            for (PackageInfo packageInfo : packageInfos) {
+                names.add(packageInfo.packageName);
+            }
+            return Flowable.fromIterable(names);
+        }).subscribeOn(config.getScheduler());
+        return getShortcutsForPackages(context, packageNames, maxConcurrency, ordered);
+    }
+
+    /**
+     * Returns the shortcuts with the category of all packages which were queried before
+     * This does not query any package
+     */
+    @NonNull
+    public static List<AppShortcut> getShortcutsInCategory(@NonNull String category) {
+        checkNotNull(category, "category == null");
+        return ShortcutRepository.get().getByCategory(category);
+    }
+
+    /**
+     * Emits the shortcuts of a package whenever it gets installed, updated or uninstalled
+     * Only the affected package will be parsed again
+     */
+    @CheckResult @NonNull
+    public static Observable<ShortcutChange> observeShortcuts(@NonNull Context context) {
+        checkNotNull(context, "context == null");
+        init(context);
+        return ShortcutChangesObservable.create(context);
+    }
+
+    /**
+     * Returns a transformer which emits the diff between consecutive shortcut lists
+     * The first list is diffed against an empty list
+     * Diffs are calculated on the computation scheduler
+     */
+    @CheckResult @NonNull
+    public static ObservableTransformer<List<AppShortcut>, ShortcutDiff> diffShortcuts() {
+        return upstream -> upstream
+                .observeOn(Schedulers.computation())
+                .scan(ShortcutDiff.calculate(Collections.emptyList(), Collections.emptyList()),
+                        (diff, shortcuts) -> ShortcutDiff.calculate(diff.getShortcuts(), shortcuts))
+                // skip the seed
+                .skip(1);
+    }
+
+    /**
+     * Emits the icon of the shortcut or completes if it has no icon
+     */
+    @CheckResult @NonNull
+    public static Maybe<Drawable> loadIcon(@NonNull Context context, @NonNull AppShortcut shortcut) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkNotNull(shortcut, "shortcut == null");
+        return Prefetcher.get().foreground(Maybe.fromCallable(() -> IconLoader.loadIcon(context, shortcut))
+                .subscribeOn(config.getScheduler()));
+    }
+
+    /**
+     * Emits the icon of the shortcut rendered at the size in pixels or completes if it has no icon
+     */
+    @CheckResult @NonNull
+    public static Maybe<Drawable> loadIcon(@NonNull Context context, @NonNull AppShortcut shortcut, int size) {
+        checkNotNull(context, "context == null");
+        init(context);
+        checkNotNull(shortcut, "shortcut == null");
+        checkArgument(size > 0, "size <= 0");
+        return Prefetcher.get().foreground(Maybe.fromCallable(() -> IconLoader.loadIcon(context, shortcut, size))
+                .subscribeOn(config.getScheduler()));
+    }
+
+    /**
+     * Returns the current config
+     */
+    @NonNull
+    public static ShortcutConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Sets the config which should be used for all following queries
+     */
+    public static void setConfig(@NonNull ShortcutConfig config) {
+        checkNotNull(config, "config == null");
+        RxAppShortcuts.config = config;
+    }
+
+    private static Flowable<PackageShortcuts> getShortcutsForPackages(Context context,
+                                                                      Flowable<String> packageNames,
+                                                                      int maxConcurrency,
+                                                                      boolean ordered) {
+        return ShortcutsForPackagesFlowable.create(packageNames,
+                packageName -> ShortcutRepository.get().getShortcuts(context, packageName),
+                maxConcurrency, ordered);
     }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A change of the shortcuts of a package
+ */
+public final class ShortcutChange {
+
+    /**
+     * The type of a shortcut change
+     */
+    public enum Type {
+        /**
+         * The package was installed
+         */
+        ADDED,
+        /**
+         * The package was updated or its components changed
+         */
+        UPDATED,
+        /**
+         * The package was uninstalled
+         */
+        REMOVED
+    }
+
+    private final Type type;
+    private final String packageName;
+    private final ShortcutSet shortcuts;
+
+    ShortcutChange(@NonNull Type type, @NonNull String packageName, @NonNull ShortcutSet shortcuts) {
+        this.type = type;
+        this.packageName = packageName;
+        this.shortcuts = shortcuts;
+    }
+
+    /**
+     * Returns the type of this change
+     */
+    @NonNull
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the package name of this change
+     */
+    @NonNull
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * Returns the current shortcuts of the package
+     * This will be empty for removed packages
+     */
+    @NonNull
+    public ShortcutSet getShortcuts() {
+        return shortcuts;
+    }
+}
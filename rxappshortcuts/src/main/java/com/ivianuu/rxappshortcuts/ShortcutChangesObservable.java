@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+
+/**
+ * Emits shortcut changes whenever a package gets added, updated or removed
+ */
+final class ShortcutChangesObservable implements ObservableOnSubscribe<Intent> {
+
+    private Context context;
+
+    private ShortcutChangesObservable(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns a observable which emits the shortcut changes of all packages
+     */
+    @CheckResult @NonNull
+    static Observable<ShortcutChange> create(Context context) {
+        Context applicationContext = context.getApplicationContext();
+        return Observable.create(new ShortcutChangesObservable(applicationContext))
+                .concatMap(intent -> toChange(applicationContext, intent));
+    }
+
+    @Override
+    public void subscribe(ObservableEmitter<Intent> e) throws Exception {
+        IntentFilter intentFilter = new IntentFilter();
+        intentFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        intentFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        intentFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        intentFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        intentFilter.addDataScheme("package");
+
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                e.onNext(intent);
+            }
+        };
+
+        context.registerReceiver(receiver, intentFilter);
+        e.setCancellable(() -> context.unregisterReceiver(receiver));
+    }
+
+    private static Observable<ShortcutChange> toChange(Context context, Intent intent) {
+        Uri data = intent.getData();
+        String packageName = data != null ? data.getSchemeSpecificPart() : null;
+        if (packageName == null) {
+            return Observable.empty();
+        }
+
+        boolean replacing = intent.getBooleanExtra(Intent.EXTRA_REPLACING, false);
+
+        final ShortcutChange.Type type;
+        switch (intent.getAction()) {
+            case Intent.ACTION_PACKAGE_ADDED:
+                if (replacing) {
+                    // will be handled by package replaced
+                    return Observable.empty();
+                }
+                type = ShortcutChange.Type.ADDED;
+                break;
+            case Intent.ACTION_PACKAGE_REMOVED:
+                if (replacing) {
+                    // will be handled by package replaced
+                    return Observable.empty();
+                }
+                return invalidate(packageName)
+                        .andThen(Observable.just(new ShortcutChange(
+                                ShortcutChange.Type.REMOVED, packageName, ShortcutSet.empty())));
+            case Intent.ACTION_PACKAGE_REPLACED:
+            case Intent.ACTION_PACKAGE_CHANGED:
+                type = ShortcutChange.Type.UPDATED;
+                break;
+            default:
+                return Observable.empty();
+        }
+
+        return invalidate(packageName)
+                .andThen(ShortcutRepository.get().getShortcuts(context, packageName))
+                .map(shortcuts -> new ShortcutChange(type, packageName, shortcuts.getShortcuts()))
+                .toObservable()
+                .onErrorResumeNext((Throwable throwable) -> {
+                    if (throwable instanceof PackageManager.NameNotFoundException) {
+                        // the package was removed in the meantime
+                        return Observable.empty();
+                    }
+                    if (throwable instanceof Exception) {
+                        // a single broken package should not end the stream
+                        throwable.printStackTrace();
+                        return Observable.empty();
+                    }
+                    return Observable.error(throwable);
+                });
+    }
+
+    /**
+     * Drops every cached state of the package on the config scheduler
+     * because it touches the disk
+     */
+    private static Completable invalidate(String packageName) {
+        return Completable.fromAction(() -> invalidateNow(packageName))
+                .subscribeOn(RxAppShortcuts.getConfig().getScheduler());
+    }
+
+    private static void invalidateNow(String packageName) {
+        ShortcutRepository.get().invalidate(packageName);
+        LabelResolver.get().remove(packageName);
+        PackageContextCache.get().remove(packageName);
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        config.getIconCache().remove(packageName);
+        ShortcutIndex shortcutIndex = config.getShortcutIndex();
+        if (shortcutIndex != null) {
+            shortcutIndex.remove(packageName);
+        }
+    }
+}
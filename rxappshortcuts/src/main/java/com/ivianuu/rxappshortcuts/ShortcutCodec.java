@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes shortcuts into a stable compact binary form
+ * Package descriptors are only written once and icons and labels are stored as resource ids
+ */
+final class ShortcutCodec {
+
+    private static final int FORMAT_VERSION = 3;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ShortcutCodec() {
+        // no instances
+    }
+
+    /**
+     * Returns the binary form of the shortcuts
+     */
+    @NonNull
+    static byte[] encode(@NonNull List<AppShortcut> shortcuts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            encode(out, shortcuts);
+            out.flush();
+        } catch (IOException e) {
+            // can't happen for in memory streams
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the binary form of the shortcuts
+     */
+    static void encode(@NonNull DataOutputStream out, @NonNull List<AppShortcut> shortcuts) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+
+        Map<PackageDescriptor, Integer> descriptors = new IdentityHashMap<>();
+        List<PackageDescriptor> descriptorList = new ArrayList<>();
+        for (AppShortcut shortcut : shortcuts) {
+            PackageDescriptor descriptor = shortcut.getPackageDescriptor();
+            if (!descriptors.containsKey(descriptor)) {
+                descriptors.put(descriptor, descriptorList.size());
+                descriptorList.add(descriptor);
+            }
+        }
+
+        out.writeInt(descriptorList.size());
+        for (PackageDescriptor descriptor : descriptorList) {
+            writeString(out, descriptor.getPackageName());
+            out.writeInt(descriptor.getVersionCode());
+            out.writeLong(descriptor.getLastUpdateTime());
+        }
+
+        out.writeInt(shortcuts.size());
+        for (AppShortcut shortcut : shortcuts) {
+            out.writeInt(descriptors.get(shortcut.getPackageDescriptor()));
+            writeString(out, shortcut.getId());
+            writeString(out, shortcut.getActivity().getClassName());
+            out.writeBoolean(shortcut.isEnabled());
+            out.writeInt(shortcut.getIconResId());
+            out.writeInt(shortcut.getShortLabelResId());
+            out.writeInt(shortcut.getLongLabelResId());
+            out.writeInt(shortcut.getDisabledMessageResId());
+            out.writeInt(shortcut.getRank());
+            out.writeInt(shortcut.getCategories().size());
+            for (String category : shortcut.getCategories()) {
+                writeString(out, category);
+            }
+            Intent intent = shortcut.getIntent();
+            writeString(out, intent != null ? intent.toUri(Intent.URI_INTENT_SCHEME) : null);
+
+            // shortcuts of the launcher apps service have no resources
+            AppShortcut.Labels labels = shortcut.getLabels();
+            out.writeBoolean(labels != null);
+            if (labels != null) {
+                writeString(out, labels.getShortLabel());
+                writeString(out, labels.getLongLabel());
+                writeString(out, labels.getDisabledMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the shortcuts of the binary form
+     * Throws a iae if the data is invalid
+     */
+    @NonNull
+    static List<AppShortcut> decode(@NonNull byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        List<AppShortcut> shortcuts = decode(buffer);
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("trailing data");
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Reads the shortcuts of the binary form from the buffer
+     * Throws a iae if the data is invalid
+     */
+    @NonNull
+    static List<AppShortcut> decode(@NonNull ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("unsupported format");
+            }
+
+            int descriptorCount = checkCount(buffer.getInt(), buffer);
+            PackageDescriptor[] descriptors = new PackageDescriptor[descriptorCount];
+            for (int i = 0; i < descriptorCount; i++) {
+                descriptors[i] = new PackageDescriptor(
+                        readString(buffer), buffer.getInt(), buffer.getLong());
+            }
+
+            int count = checkCount(buffer.getInt(), buffer);
+            List<AppShortcut> shortcuts = new ArrayList<>(count);
+            Map<String, ComponentName> activities = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                PackageDescriptor descriptor = descriptors[buffer.getInt()];
+                String id = readString(buffer);
+
+                // activities are shared between shortcuts
+                String activityName = readString(buffer);
+                String activityKey = descriptor.getPackageName() + "/" + activityName;
+                ComponentName activity = activities.get(activityKey);
+                if (activity == null) {
+                    activity = new ComponentName(descriptor.getPackageName(), activityName);
+                    activities.put(activityKey, activity);
+                }
+
+                boolean enabled = buffer.get() != 0;
+                int iconResId = buffer.getInt();
+                int shortLabelResId = buffer.getInt();
+                int longLabelResId = buffer.getInt();
+                int disabledMessageResId = buffer.getInt();
+                int rank = buffer.getInt();
+
+                int categoryCount = checkCount(buffer.getInt(), buffer);
+                Set<String> categories;
+                if (categoryCount == 0) {
+                    categories = Collections.emptySet();
+                } else {
+                    categories = new HashSet<>(categoryCount);
+                    for (int j = 0; j < categoryCount; j++) {
+                        categories.add(readString(buffer));
+                    }
+                }
+
+                String uri = readString(buffer);
+                Intent intent = uri != null ? Intent.parseUri(uri, Intent.URI_INTENT_SCHEME) : null;
+                if (intent != null && intent.getComponent() != null) {
+                    // intent targets are shared like the activities
+                    ComponentName target = intent.getComponent();
+                    String targetKey = target.getPackageName() + "/" + target.getClassName();
+                    ComponentName sharedTarget = activities.get(targetKey);
+                    if (sharedTarget == null) {
+                        activities.put(targetKey, target);
+                    } else {
+                        intent.setComponent(sharedTarget);
+                    }
+                }
+
+                AppShortcut.Labels labels = null;
+                if (buffer.get() != 0) {
+                    labels = new AppShortcut.Labels(readString(buffer), readString(buffer), readString(buffer));
+                }
+
+                shortcuts.add(new AppShortcut(
+                        id,
+                        descriptor,
+                        activity,
+                        enabled,
+                        iconResId,
+                        shortLabelResId,
+                        longLabelResId,
+                        disabledMessageResId,
+                        rank,
+                        intent,
+                        categories,
+                        labels));
+            }
+
+            return shortcuts;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | NullPointerException | URISyntaxException e) {
+            throw new IllegalArgumentException("invalid data", e);
+        }
+    }
+
+    private static int checkCount(int count, ByteBuffer buffer) {
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid count " + count);
+        }
+        return count;
+    }
+
+    static void writeString(@NonNull DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    static String readString(@NonNull ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import static com.ivianuu.rxappshortcuts.Preconditions.checkArgument;
+import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
+
+/**
+ * Configures how shortcuts are retrieved
+ */
+public final class ShortcutConfig {
+
+    private static final int DEFAULT_MAX_CONCURRENT_BINDER_CALLS = 4;
+
+    private final Scheduler scheduler;
+    private final int maxConcurrentBinderCalls;
+    private final IconCache iconCache;
+    private final ShortcutIndex shortcutIndex;
+    private final RetrievalMode retrievalMode;
+    private final ShortcutMetricsListener metricsListener;
+    private final long packageTimeoutMillis;
+    private final boolean launcherAppsEnabled;
+    private final BinderCallLimiter binderCallLimiter;
+
+    private ShortcutConfig(Builder builder) {
+        this.scheduler = builder.scheduler;
+        this.maxConcurrentBinderCalls = builder.maxConcurrentBinderCalls;
+        this.iconCache = builder.iconCache;
+        this.shortcutIndex = builder.shortcutIndex;
+        this.retrievalMode = builder.retrievalMode;
+        this.metricsListener = builder.metricsListener;
+        this.packageTimeoutMillis = builder.packageTimeoutMillis;
+        this.launcherAppsEnabled = builder.launcherAppsEnabled;
+        this.binderCallLimiter = new BinderCallLimiter(maxConcurrentBinderCalls);
+    }
+
+    /**
+     * Returns a new builder
+     */
+    @CheckResult @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a new builder initialized with the values of this config
+     */
+    @CheckResult @NonNull
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Returns the scheduler on which package manager and resource work is done
+     */
+    @NonNull
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the max number of concurrent package manager calls
+     */
+    public int getMaxConcurrentBinderCalls() {
+        return maxConcurrentBinderCalls;
+    }
+
+    /**
+     * Returns the cache which is used for icons loaded at a specific size
+     */
+    @NonNull
+    public IconCache getIconCache() {
+        return iconCache;
+    }
+
+    /**
+     * Returns the index which is used to persist parsed shortcuts or null if none is set
+     */
+    @Nullable
+    public ShortcutIndex getShortcutIndex() {
+        return shortcutIndex;
+    }
+
+    /**
+     * Returns which activities are scanned for shortcuts
+     */
+    @NonNull
+    public RetrievalMode getRetrievalMode() {
+        return retrievalMode;
+    }
+
+    /**
+     * Returns the listener which receives metrics or null if none is set
+     */
+    @Nullable
+    public ShortcutMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Returns the max time in milliseconds a package may take to be parsed or 0 if there is no limit
+     */
+    public long getPackageTimeoutMillis() {
+        return packageTimeoutMillis;
+    }
+
+    /**
+     * Returns if shortcuts are retrieved from the launcher apps service when possible
+     */
+    public boolean isLauncherAppsEnabled() {
+        return launcherAppsEnabled;
+    }
+
+    /**
+     * Returns the limiter for package manager calls
+     */
+    @NonNull
+    BinderCallLimiter getBinderCallLimiter() {
+        return binderCallLimiter;
+    }
+
+    /**
+     * Builds shortcut configs
+     */
+    public static final class Builder {
+
+        private Scheduler scheduler;
+        private int maxConcurrentBinderCalls;
+        private IconCache iconCache;
+        private ShortcutIndex shortcutIndex;
+        private RetrievalMode retrievalMode;
+        private ShortcutMetricsListener metricsListener;
+        private long packageTimeoutMillis;
+        private boolean launcherAppsEnabled;
+
+        private Builder() {
+            scheduler = Schedulers.io();
+            maxConcurrentBinderCalls = DEFAULT_MAX_CONCURRENT_BINDER_CALLS;
+            retrievalMode = RetrievalMode.ALL_ACTIVITIES;
+        }
+
+        private Builder(ShortcutConfig config) {
+            scheduler = config.scheduler;
+            maxConcurrentBinderCalls = config.maxConcurrentBinderCalls;
+            iconCache = config.iconCache;
+            shortcutIndex = config.shortcutIndex;
+            retrievalMode = config.retrievalMode;
+            metricsListener = config.metricsListener;
+            packageTimeoutMillis = config.packageTimeoutMillis;
+            launcherAppsEnabled = config.launcherAppsEnabled;
+        }
+
+        /**
+         * Sets the scheduler on which package manager and resource work should be done
+         * Defaults to the io scheduler because this work is blocking
+         */
+        @NonNull
+        public Builder scheduler(@NonNull Scheduler scheduler) {
+            checkNotNull(scheduler, "scheduler == null");
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Sets the executor on which package manager and resource work should be done
+         */
+        @NonNull
+        public Builder executor(@NonNull Executor executor) {
+            checkNotNull(executor, "executor == null");
+            return scheduler(Schedulers.from(executor));
+        }
+
+        /**
+         * Sets the max number of package manager calls which can be in flight at the same time
+         * Further calls will wait until a previous call has finished
+         */
+        @NonNull
+        public Builder maxConcurrentBinderCalls(int maxConcurrentBinderCalls) {
+            checkArgument(maxConcurrentBinderCalls > 0, "maxConcurrentBinderCalls <= 0");
+            this.maxConcurrentBinderCalls = maxConcurrentBinderCalls;
+            return this;
+        }
+
+        /**
+         * Sets the cache which should be used for icons loaded at a specific size
+         */
+        @NonNull
+        public Builder iconCache(@NonNull IconCache iconCache) {
+            checkNotNull(iconCache, "iconCache == null");
+            this.iconCache = iconCache;
+            return this;
+        }
+
+        /**
+         * Sets the index which should be used to persist parsed shortcuts
+         * Passing null disables the index
+         */
+        @NonNull
+        public Builder shortcutIndex(@Nullable ShortcutIndex shortcutIndex) {
+            this.shortcutIndex = shortcutIndex;
+            return this;
+        }
+
+        /**
+         * Sets which activities should be scanned for shortcuts
+         * Defaults to all activities
+         */
+        @NonNull
+        public Builder retrievalMode(@NonNull RetrievalMode retrievalMode) {
+            checkNotNull(retrievalMode, "retrievalMode == null");
+            this.retrievalMode = retrievalMode;
+            return this;
+        }
+
+        /**
+         * Sets the listener which should receive timings and counts
+         * Passing null disables metrics
+         */
+        @NonNull
+        public Builder metricsListener(@Nullable ShortcutMetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+            return this;
+        }
+
+        /**
+         * Sets the max time a package may take to be parsed
+         * Slower packages are cancelled and fail with a timeout exception,
+         * queries over multiple packages skip them
+         * Passing 0 removes the limit which is the default
+         */
+        @NonNull
+        public Builder packageTimeout(long timeout, @NonNull TimeUnit unit) {
+            checkArgument(timeout >= 0, "timeout < 0");
+            checkNotNull(unit, "unit == null");
+            this.packageTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Sets if shortcuts should be retrieved from the launcher apps service
+         * This is only done on api 25 and above if the app is allowed to host shortcuts,
+         * otherwise the shortcuts xml files are parsed
+         * Shortcuts of the launcher apps service have no intent,
+         * {@link AppShortcut#getIntent()} returns null for them and they must be launched
+         * with {@link AppShortcut#start(android.content.Context)}
+         * Defaults to false
+         */
+        @NonNull
+        public Builder launcherAppsEnabled(boolean launcherAppsEnabled) {
+            this.launcherAppsEnabled = launcherAppsEnabled;
+            return this;
+        }
+
+        /**
+         * Returns the config
+         */
+        @CheckResult @NonNull
+        public ShortcutConfig build() {
+            if (iconCache == null) {
+                iconCache = IconCache.createDefault();
+            }
+            return new ShortcutConfig(this);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
+
+/**
+ * The operations which turn one list of shortcuts into another
+ * Operations have to be applied in order, each position refers to the list after the previous operations
+ */
+public final class ShortcutDiff {
+
+    private final List<AppShortcut> shortcuts;
+    private final List<Operation> operations;
+
+    private ShortcutDiff(List<AppShortcut> shortcuts, List<Operation> operations) {
+        this.shortcuts = shortcuts;
+        this.operations = operations;
+    }
+
+    /**
+     * Returns the diff from the old to the new shortcuts
+     * Shortcuts are matched by {@link AppShortcut#isSameShortcut(AppShortcut)}
+     * and changed if they are not equal, duplicates are matched in order
+     */
+    @CheckResult @NonNull
+    public static ShortcutDiff calculate(@NonNull List<AppShortcut> oldShortcuts,
+                                         @NonNull List<AppShortcut> newShortcuts) {
+        checkNotNull(oldShortcuts, "oldShortcuts == null");
+        checkNotNull(newShortcuts, "newShortcuts == null");
+
+        List<Operation> operations = new ArrayList<>();
+        List<AppShortcut> current = new ArrayList<>(oldShortcuts);
+
+        // remove from the end so the positions of the remaining removals don't change
+        // duplicates beyond the count of the new shortcuts are removed as well
+        for (int i = current.size() - 1; i >= 0; i--) {
+            AppShortcut shortcut = current.get(i);
+            if (count(current, shortcut, i) >= count(newShortcuts, shortcut, newShortcuts.size())) {
+                current.remove(i);
+                operations.add(new Operation(Operation.Type.REMOVE, i, i));
+            }
+        }
+
+        for (int i = 0; i < newShortcuts.size(); i++) {
+            AppShortcut shortcut = newShortcuts.get(i);
+            if (i < current.size() && current.get(i).isSameShortcut(shortcut)) {
+                continue;
+            }
+
+            int from = indexOf(current, shortcut, i + 1);
+            if (from != -1) {
+                current.add(i, current.remove(from));
+                operations.add(new Operation(Operation.Type.MOVE, from, i));
+            } else {
+                current.add(i, shortcut);
+                operations.add(new Operation(Operation.Type.INSERT, i, i));
+            }
+        }
+
+        // all shortcuts are at their final position now
+        for (int i = 0; i < newShortcuts.size(); i++) {
+            AppShortcut oldShortcut = current.get(i);
+            AppShortcut newShortcut = newShortcuts.get(i);
+            if (oldShortcut != newShortcut && !oldShortcut.equals(newShortcut)) {
+                operations.add(new Operation(Operation.Type.CHANGE, i, i));
+            }
+        }
+
+        return new ShortcutDiff(Collections.unmodifiableList(new ArrayList<>(newShortcuts)),
+                Collections.unmodifiableList(operations));
+    }
+
+    private static int count(List<AppShortcut> shortcuts, AppShortcut shortcut, int end) {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (shortcuts.get(i).isSameShortcut(shortcut)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int indexOf(List<AppShortcut> shortcuts, AppShortcut shortcut, int start) {
+        for (int i = start; i < shortcuts.size(); i++) {
+            if (shortcuts.get(i).isSameShortcut(shortcut)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the new shortcuts
+     */
+    @NonNull
+    public List<AppShortcut> getShortcuts() {
+        return shortcuts;
+    }
+
+    /**
+     * Returns the operations in the order they have to be applied
+     */
+    @NonNull
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Returns if the shortcuts did not change
+     */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Dispatches all operations in order to the callback
+     */
+    public void dispatchTo(@NonNull Callback callback) {
+        checkNotNull(callback, "callback == null");
+        for (Operation operation : operations) {
+            switch (operation.type) {
+                case INSERT:
+                    callback.onInserted(operation.position);
+                    break;
+                case REMOVE:
+                    callback.onRemoved(operation.position);
+                    break;
+                case MOVE:
+                    callback.onMoved(operation.position, operation.toPosition);
+                    break;
+                case CHANGE:
+                    callback.onChanged(operation.position);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Receives the operations of a diff
+     */
+    public interface Callback {
+        /**
+         * A shortcut was inserted at the position
+         */
+        void onInserted(int position);
+
+        /**
+         * The shortcut at the position was removed
+         */
+        void onRemoved(int position);
+
+        /**
+         * The shortcut at the from position was moved to the to position
+         */
+        void onMoved(int fromPosition, int toPosition);
+
+        /**
+         * The content of the shortcut at the position has changed
+         */
+        void onChanged(int position);
+    }
+
+    /**
+     * A single operation of a diff
+     */
+    public static final class Operation {
+
+        /**
+         * The type of an operation
+         */
+        public enum Type {
+            INSERT, REMOVE, MOVE, CHANGE
+        }
+
+        private final Type type;
+        private final int position;
+        private final int toPosition;
+
+        private Operation(Type type, int position, int toPosition) {
+            this.type = type;
+            this.position = position;
+            this.toPosition = toPosition;
+        }
+
+        /**
+         * Returns the type of this operation
+         */
+        @NonNull
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the position of this operation, for moves this is the from position
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the to position of a move or the position for all other operations
+         */
+        public int getToPosition() {
+            return toPosition;
+        }
+
+        @Override
+        public String toString() {
+            return type + "(" + position + (type == Type.MOVE ? " -> " + toPosition : "") + ")";
+        }
+    }
+}
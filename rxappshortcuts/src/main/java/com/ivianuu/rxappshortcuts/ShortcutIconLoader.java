@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.CheckResult;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ivianuu.rxappshortcuts.Preconditions.checkArgument;
+import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
+
+/**
+ * Loads shortcut icons of a fixed size asynchronously into targets like image views
+ * The most recently bound targets are loaded first so visible icons win over scrolled away ones
+ * Icons are shared with the icon cache of the config so prefetched icons are bound immediately
+ * Targets should be cancelled when they are recycled, their bitmaps will be reused
+ */
+public final class ShortcutIconLoader {
+
+    private static final int THREAD_COUNT = 2;
+    private static final long KEEP_ALIVE_SECONDS = 1;
+
+    private final Context context;
+    private final int iconSize;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor;
+
+    // only accessed on the main thread
+    private final Map<Object, Request> requests = new HashMap<>();
+    private long sequence = 0;
+
+    private ShortcutIconLoader(Context context, int iconSize) {
+        this.context = context.getApplicationContext();
+        this.iconSize = iconSize;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "RxAppShortcuts-Icon-" + threadCount.incrementAndGet()));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns a new icon loader which renders icons at the size in pixels
+     */
+    @CheckResult @NonNull
+    public static ShortcutIconLoader create(@NonNull Context context, int iconSize) {
+        checkNotNull(context, "context == null");
+        RxAppShortcuts.init(context);
+        checkArgument(iconSize > 0, "iconSize <= 0");
+        return new ShortcutIconLoader(context, iconSize);
+    }
+
+    /**
+     * Loads the icon of the shortcut into the image view
+     * A previous request of the image view will be cancelled
+     */
+    @MainThread
+    public void bind(@NonNull AppShortcut shortcut, @NonNull ImageView imageView) {
+        checkNotNull(shortcut, "shortcut == null");
+        checkNotNull(imageView, "imageView == null");
+        bind(shortcut, imageView, imageView::setImageDrawable);
+    }
+
+    /**
+     * Loads the icon of the shortcut into the target
+     * A previous request of the target will be cancelled
+     */
+    @MainThread
+    public void bind(@NonNull AppShortcut shortcut, @NonNull IconTarget target) {
+        checkNotNull(shortcut, "shortcut == null");
+        checkNotNull(target, "target == null");
+        bind(shortcut, target, target);
+    }
+
+    /**
+     * Cancels the request of the image view and clears its icon
+     * This should be called when the image view gets recycled
+     */
+    @MainThread
+    public void cancel(@NonNull ImageView imageView) {
+        checkNotNull(imageView, "imageView == null");
+        cancel((Object) imageView);
+    }
+
+    /**
+     * Cancels the request of the target and clears its icon
+     * This should be called when the target gets recycled
+     */
+    @MainThread
+    public void cancel(@NonNull IconTarget target) {
+        checkNotNull(target, "target == null");
+        cancel((Object) target);
+    }
+
+    /**
+     * Cancels all requests and clears the icons of their targets
+     */
+    @MainThread
+    public void clear() {
+        for (Object key : new ArrayList<>(requests.keySet())) {
+            cancel(key);
+        }
+    }
+
+    private void bind(AppShortcut shortcut, Object key, IconTarget target) {
+        Request current = requests.get(key);
+        if (current != null && current.shortcut == shortcut) {
+            // already bound
+            return;
+        }
+
+        cancel(key);
+
+        if (!shortcut.hasIcon()) {
+            // no icon
+            target.setIcon(null);
+            return;
+        }
+
+        // the request keeps the cache so references are released where they were acquired
+        IconCache iconCache = RxAppShortcuts.getConfig().getIconCache();
+        Request request = new Request(shortcut, key, target, iconCache, sequence++);
+        requests.put(key, request);
+
+        // cached icons are set immediately to avoid flickering
+        Bitmap bitmap = iconCache.acquire(shortcut, iconSize);
+        if (bitmap != null) {
+            deliver(request, bitmap);
+        } else {
+            executor.execute(request);
+        }
+    }
+
+    private void cancel(Object key) {
+        Request request = requests.remove(key);
+        if (request == null) {
+            return;
+        }
+
+        request.cancelled = true;
+        executor.remove(request);
+
+        if (request.bitmap != null) {
+            request.target.setIcon(null);
+            request.iconCache.release(request.bitmap);
+            request.bitmap = null;
+        }
+    }
+
+    private void deliver(Request request, @Nullable Bitmap bitmap) {
+        if (request.cancelled || requests.get(request.key) != request) {
+            // nobody is interested anymore
+            if (bitmap != null) {
+                request.iconCache.release(bitmap);
+            }
+            return;
+        }
+
+        // the reference is transferred to the target
+        request.bitmap = bitmap;
+        request.target.setIcon(bitmap != null ? new BitmapDrawable(context.getResources(), bitmap) : null);
+    }
+
+    private final class Request implements Runnable, Comparable<Request> {
+        private final AppShortcut shortcut;
+        private final Object key;
+        private final IconTarget target;
+        private final IconCache iconCache;
+        private final long sequence;
+
+        private volatile boolean cancelled = false;
+        // the displayed bitmap, only accessed on the main thread
+        private Bitmap bitmap;
+
+        private Request(AppShortcut shortcut, Object key, IconTarget target, IconCache iconCache, long sequence) {
+            this.shortcut = shortcut;
+            this.key = key;
+            this.target = target;
+            this.iconCache = iconCache;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            Bitmap bitmap = IconLoader.acquireIcon(context, shortcut, iconSize, iconCache);
+            mainHandler.post(() -> deliver(this, bitmap));
+        }
+
+        @Override
+        public int compareTo(@NonNull Request other) {
+            // newest first
+            return Long.compare(other.sequence, sequence);
+        }
+    }
+}
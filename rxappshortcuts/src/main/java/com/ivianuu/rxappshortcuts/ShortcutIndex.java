@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.pm.PackageInfo;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
+
+/**
+ * Persists parsed shortcuts on disk so unchanged packages don't have to be parsed again
+ * Every package is stored in its own file which is memory mapped when read
+ * Files which don't match the installed package or retrieval mode or are corrupted will be rebuilt
+ */
+public final class ShortcutIndex {
+
+    private static final int MAGIC = 0x52585343; // RXSC
+    private static final int FORMAT_VERSION = 4;
+    private static final String FILE_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+
+    private ShortcutIndex(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a new shortcut index which stores its files in the directory
+     */
+    @CheckResult @NonNull
+    public static ShortcutIndex create(@NonNull File directory) {
+        checkNotNull(directory, "directory == null");
+        return new ShortcutIndex(directory);
+    }
+
+    /**
+     * Removes the indexed shortcuts of the package
+     */
+    public void remove(@NonNull String packageName) {
+        checkNotNull(packageName, "packageName == null");
+        //noinspection ResultOfMethodCallIgnored
+        fileFor(packageName).delete();
+    }
+
+    /**
+     * Removes all indexed shortcuts
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_SUFFIX)) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the indexed shortcuts of the package
+     * or null if there are none or they are outdated or of another retrieval mode
+     */
+    @Nullable
+    ShortcutSet read(@NonNull PackageInfo packageInfo, @NonNull RetrievalMode retrievalMode) {
+        File file = fileFor(packageInfo.packageName);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ShortcutSet shortcuts = decode(buffer, packageInfo, retrievalMode);
+            if (shortcuts == null) {
+                // outdated
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+            return shortcuts;
+        } catch (IOException | RuntimeException e) {
+            // corrupted
+            e.printStackTrace();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the shortcuts of the package which were parsed in the retrieval mode
+     */
+    void write(@NonNull PackageInfo packageInfo,
+               @NonNull RetrievalMode retrievalMode,
+               @NonNull List<AppShortcut> shortcuts) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        File file = fileFor(packageInfo.packageName);
+        File tempFile = new File(directory, file.getName() + TEMP_SUFFIX);
+
+        try {
+            byte[] payload = encode(packageInfo, retrievalMode, shortcuts);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(payload.length);
+                out.writeLong(crc.getValue());
+                out.write(payload);
+            }
+
+            if (!tempFile.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+
+    private File fileFor(String packageName) {
+        return new File(directory, packageName + FILE_SUFFIX);
+    }
+
+    private static byte[] encode(PackageInfo packageInfo,
+                                 RetrievalMode retrievalMode,
+                                 List<AppShortcut> shortcuts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(packageInfo.versionCode);
+        out.writeLong(packageInfo.lastUpdateTime);
+        out.writeByte(retrievalMode.ordinal());
+        ShortcutCodec.encode(out, shortcuts);
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Nullable
+    private static ShortcutSet decode(ByteBuffer buffer, PackageInfo packageInfo, RetrievalMode retrievalMode) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+
+        int length = buffer.getInt();
+        long checksum = buffer.getLong();
+        if (length != buffer.remaining()) {
+            throw new IllegalStateException("invalid length");
+        }
+
+        if (checksum(buffer.duplicate()) != checksum) {
+            throw new IllegalStateException("invalid checksum");
+        }
+
+        if (buffer.getInt() != packageInfo.versionCode
+                || buffer.getLong() != packageInfo.lastUpdateTime
+                || buffer.get() != retrievalMode.ordinal()) {
+            return null;
+        }
+
+        List<AppShortcut> shortcuts = ShortcutCodec.decode(buffer);
+
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("trailing data");
+        }
+
+        return ShortcutSet.of(shortcuts);
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[4096];
+        while (buffer.hasRemaining()) {
+            int count = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, count);
+            crc.update(chunk, 0, count);
+        }
+        return crc.getValue();
+    }
+}
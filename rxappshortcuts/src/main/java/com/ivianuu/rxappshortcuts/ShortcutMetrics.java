@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Reports metrics to the listener of the config
+ * Nothing is measured if no listener is set
+ */
+final class ShortcutMetrics {
+
+    private ShortcutMetrics() {
+        // no instances
+    }
+
+    /**
+     * Returns the start time of a phase or 0 if no listener is set
+     */
+    static long start(@NonNull ShortcutConfig config) {
+        return config.getMetricsListener() != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Returns the nanos since the start time or 0 if no listener is set
+     */
+    static long elapsed(@NonNull ShortcutConfig config, long start) {
+        return config.getMetricsListener() != null ? System.nanoTime() - start : 0L;
+    }
+
+    /**
+     * Reports the duration of the phase which was started at the start time
+     */
+    static void phase(@NonNull ShortcutConfig config,
+                      @NonNull String packageName,
+                      @NonNull ShortcutMetricsListener.Phase phase,
+                      long start) {
+        ShortcutMetricsListener listener = config.getMetricsListener();
+        if (listener != null) {
+            listener.onPhase(packageName, phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reports the duration of a phase which was measured by the caller
+     */
+    static void duration(@NonNull ShortcutConfig config,
+                         @NonNull String packageName,
+                         @NonNull ShortcutMetricsListener.Phase phase,
+                         long durationNanos) {
+        ShortcutMetricsListener listener = config.getMetricsListener();
+        if (listener != null) {
+            listener.onPhase(packageName, phase, durationNanos);
+        }
+    }
+
+    /**
+     * Increases the counter of the package by the count
+     */
+    static void count(@NonNull ShortcutConfig config,
+                      @NonNull String packageName,
+                      @NonNull ShortcutMetricsListener.Counter counter,
+                      int count) {
+        ShortcutMetricsListener listener = config.getMetricsListener();
+        if (listener != null && count > 0) {
+            listener.onCount(packageName, counter, count);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Receives timings and counts of shortcut retrieval
+ * Callbacks are invoked on the threads which did the work and should return quickly
+ */
+public interface ShortcutMetricsListener {
+
+    /**
+     * The measured phases
+     * Phases can overlap, for example the exported check happens while the xml is parsed
+     */
+    enum Phase {
+        /**
+         * Package manager calls for the package info and launcher activities
+         */
+        GET_PACKAGE_INFO,
+        /**
+         * Querying the launcher apps service for shortcuts and icons
+         */
+        LAUNCHER_APPS,
+        /**
+         * Creating the context of the package
+         */
+        CREATE_PACKAGE_CONTEXT,
+        /**
+         * Opening the shortcuts xml of an activity
+         */
+        LOAD_XML,
+        /**
+         * Parsing the shortcuts xml of an activity
+         */
+        PARSE_XML,
+        /**
+         * Resolving which activities of a package are exported
+         */
+        EXPORTED_CHECK,
+        /**
+         * Loading an icon
+         */
+        DECODE_ICON
+    }
+
+    /**
+     * The counted events
+     */
+    enum Counter {
+        /**
+         * Activities whose shortcuts xml was parsed
+         */
+        ACTIVITIES_SCANNED,
+        /**
+         * Valid shortcuts
+         */
+        SHORTCUTS_PARSED,
+        /**
+         * Shortcuts which were dropped because they are invalid or already declared
+         */
+        SHORTCUTS_REJECTED,
+        /**
+         * Package manager calls
+         */
+        BINDER_CALLS
+    }
+
+    /**
+     * Will be called when a phase for the package has finished
+     */
+    void onPhase(@NonNull String packageName, @NonNull Phase phase, long durationNanos);
+
+    /**
+     * Will be called when the counter of the package was increased by the count
+     */
+    void onCount(@NonNull String packageName, @NonNull Counter counter, int count);
+}
@@ -20,275 +20,162 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
-import android.content.pm.PackageManager;
 import android.content.res.XmlResourceParser;
-import android.graphics.drawable.Drawable;
-import android.support.v4.content.ContextCompat;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
- * Parses the shortcuts
+ * Parses the shortcuts of an activity
+ * The xml is walked by the platform independent {@link ShortcutXmlParser}
  */
-final class ShortcutParser {
-
-    private static final String KEY_ICON = "icon";
-    private static final String KEY_ENABLED = "enabled";
-    private static final String KEY_ID = "shortcutId";
-    private static final String KEY_SHORT_LABEL = "shortcutShortLabel";
-    private static final String KEY_LONG_LABEL = "shortcutLongLabel";
-    private static final String KEY_DISABLED_MESSAGE = "shortcutDisabledMessage";
-    private static final String KEY_NAME = "name";
-
-    private static final String TAG_SHORTCUTS = "shortcuts";
-    private static final String TAG_SHORTCUT = "shortcut";
-    private static final String TAG_INTENT = "intent";
-    private static final String TAG_CATEGORIES = "categories";
-
-    private ShortcutParser() {
-        // no instances
+final class ShortcutParser implements ShortcutXmlSource<Intent, AppShortcut> {
+
+    private final Context context;
+    private final Context packageContext;
+    private final XmlResourceParser parser;
+    private final PackageDescriptor packageDescriptor;
+    // shared by all shortcuts of the activity
+    private final ComponentName activity;
+    private final CancellationSignal cancellationSignal;
+    // shared by all activities of the package parse
+    private final ExportedActivities exportedActivities;
+    // intent targets shared by all intents of the activity
+    private final Map<ComponentName, ComponentName> components = new HashMap<>();
+
+    private final ShortcutXmlParser<Intent, AppShortcut> xmlParser;
+
+    ShortcutParser(Context context,
+                   Context packageContext,
+                   XmlResourceParser parser,
+                   ActivityInfo activityInfo,
+                   PackageDescriptor packageDescriptor,
+                   ExportedActivities exportedActivities,
+                   @Nullable CancellationSignal cancellationSignal) {
+        this.context = context;
+        this.packageContext = packageContext;
+        this.parser = parser;
+        this.packageDescriptor = packageDescriptor;
+        this.activity = new ComponentName(packageDescriptor.getPackageName(), activityInfo.name);
+        this.exportedActivities = exportedActivities;
+        this.cancellationSignal = cancellationSignal;
+        this.xmlParser = new ShortcutXmlParser<>(this);
     }
 
-    static List<AppShortcut> parseShortcuts(
-            Context context,
-            XmlResourceParser parser,
-            ActivityInfo activityInfo,
-            String packageName) throws IOException, XmlPullParserException {
-
-        List<AppShortcut> result = new ArrayList<>();
-
-        try {
-            final ComponentName activity = new ComponentName(packageName, activityInfo.name);
-
-            int type;
-            int rank = 0;
-            // We instantiate AppShortcut at <shortcut>, but we add it to the list at </shortcut>,
-            // after parsing <intent>.  We keep the current one in here.
-            AppShortcut currentShortcut = null;
-            Set<String> categories = null;
-            Intent intent = null;
-
-            outer:
-            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
-                    && (type != XmlPullParser.END_TAG || parser.getDepth() > 0)) {
-                final int depth = parser.getDepth();
-                final String tag = parser.getName();
-                // When a shortcut tag is closing, publish.
-                if ((type == XmlPullParser.END_TAG) && (depth == 2) && (TAG_SHORTCUT.equals(tag))) {
-                    if (currentShortcut == null) {
-                        // Shortcut was invalid.
-                        continue;
-                    }
-                    final AppShortcut si = currentShortcut;
-                    currentShortcut = null; // Make sure to null out for the next iteration.
-                    if (intent == null) {
-                        // no intents available
-                        continue;
-                    }
-                    // Same flag as what TaskStackBuilder adds.
-                    intent.addFlags(
-                            Intent.FLAG_ACTIVITY_NEW_TASK |
-                                    Intent.FLAG_ACTIVITY_CLEAR_TASK |
-                                    Intent.FLAG_ACTIVITY_TASK_ON_HOME);
-
-                    try {
-                        si.setIntent(intent);
-                    } catch (RuntimeException e) {
-                        e.printStackTrace();
-                        continue;
-                    }
-
-                    intent = null;
-
-                    // if no categories where found pass a empty list
-                    si.setCategories(Collections.<String>emptySet());
-
-                    result.add(si);
-                    rank++;
-                    continue;
-                }
-                // Otherwise, just look at start tags.
-                if (type != XmlPullParser.START_TAG) {
-                    continue;
-                }
-
-                if (depth == 1 && TAG_SHORTCUTS.equals(tag)) {
-                    continue; // Root tag.
-                }
-
-                if (depth == 2 && TAG_SHORTCUT.equals(tag)) {
-                    final AppShortcut si = parseShortcutAttributes(
-                            context, parser, packageName, activity, rank);
-                    if (si == null) {
-                        // Shortcut was invalid.
-                        continue;
-                    }
-
-                    for (int i = result.size() - 1; i >= 0; i--) {
-                        if (si.getId().equals(result.get(i).getId())) {
-                            continue outer;
-                        }
-                    }
-                    currentShortcut = si;
-                    categories = null;
-                    continue;
-                }
-
-                if (depth == 3 && TAG_INTENT.equals(tag)) {
-                    if ((currentShortcut == null)) {
-                        continue;
-                    }
-
-                    intent = Intent.parseIntent(context.getResources(),
-                            parser, parser);
-
-                    if (TextUtils.isEmpty(intent.getAction())) {
-                        currentShortcut = null; // Invalidate the current shortcut.
-                        continue;
-                    }
-
-                    if (intent.getComponent() != null) {
-                        PackageManager packageManager = context.getPackageManager();
-                        ComponentName component = intent.getComponent();
-                        try {
-                            ActivityInfo info = packageManager.getActivityInfo(component, 0);
-                            if (!info.exported) {
-                                // we need to exclude activities which are not exported
-                                currentShortcut = null;
-                                continue;
-                            }
-                        } catch (PackageManager.NameNotFoundException e) {
-                            e.printStackTrace();
-                        }
-                    }
-
-                    continue;
-                }
-
-                if (depth == 3 && TAG_CATEGORIES.equals(tag)) {
-                    if (currentShortcut == null) {
-                        continue;
-                    }
-
-                    final String name = parseCategories(parser);
+    /**
+     * Returns the next shortcut as soon as its element is closed or null if there are no more shortcuts
+     */
+    AppShortcut next() throws IOException, XmlPullParserException, InterruptedException {
+        return xmlParser.next();
+    }
 
-                    if (TextUtils.isEmpty(name)) {
-                        continue;
-                    }
+    /**
+     * Returns the number of shortcuts which were dropped so far
+     */
+    int getRejectedCount() {
+        return xmlParser.getRejectedCount();
+    }
 
-                    if (categories == null) {
-                        categories = new HashSet<>();
-                    }
+    @NonNull
+    @Override
+    public XmlPullParser getParser() {
+        return parser;
+    }
 
-                    categories.add(name);
-                }
-            }
-        } finally {
-            if (parser != null) {
-                parser.close();
-            }
-        }
-        return result;
+    @Override
+    public int getAttributeResourceValue(int index) {
+        return parser.getAttributeResourceValue(index, 0);
     }
-    private static String parseCategories(XmlResourceParser parser) {
-        String name = null;
-        for (int i = 0; i < parser.getAttributeCount(); i++) {
-            if (parser.getAttributeName(i).equals(KEY_NAME)) {
-                name = parser.getAttributeValue(i);
-            }
-        }
 
-        return name;
+    @Override
+    public boolean getAttributeBooleanValue(int index) {
+        return parser.getAttributeBooleanValue(index, false);
     }
 
-    private static AppShortcut parseShortcutAttributes(Context context,
-                                                       XmlResourceParser parser,
-                                                       String packageName,
-                                                       ComponentName activity,
-                                                       int rank) {
-        String id = null;
-        boolean enabled = false;
-        int iconResId = 0;
-        int shortLabelResId = 0;
-        int longLabelResId = 0;
-        int disabledMessageResId = 0;
-        for (int i = 0; i < parser.getAttributeCount(); i++) {
-            String name = parser.getAttributeName(i);
-            switch (name) {
-                case KEY_ICON:
-                    iconResId = parser.getAttributeResourceValue(i, 0);
-                    break;
-                case KEY_ENABLED:
-                    enabled = parser.getAttributeBooleanValue(i, false);
-                    break;
-                case KEY_ID:
-                    id = parser.getAttributeValue(i);
-                    break;
-                case KEY_SHORT_LABEL:
-                    shortLabelResId = parser.getAttributeResourceValue(i, 0);
-                    break;
-                case KEY_LONG_LABEL:
-                    longLabelResId = parser.getAttributeResourceValue(i, 0);
-                    break;
-                case KEY_DISABLED_MESSAGE:
-                    disabledMessageResId = parser.getAttributeResourceValue(i, 0);
-                    break;
-            }
-        }
+    @Override
+    public Intent parseIntent() throws IOException, XmlPullParserException, InterruptedException {
+        Intent intent = Intent.parseIntent(packageContext.getResources(), parser, parser);
 
-        if (TextUtils.isEmpty(id)) {
+        if (TextUtils.isEmpty(intent.getAction())) {
             return null;
         }
-        if (shortLabelResId == 0) {
+
+        if (intent.getComponent() != null
+                && !exportedActivities.isExported(intent.getComponent())) {
+            // we need to exclude activities which are not exported
             return null;
         }
 
-        return createShortcut(
-                context,
+        if (intent.getComponent() != null) {
+            // the intent is the largest part of a shortcut and usually targets the same activity
+            intent.setComponent(share(intent.getComponent()));
+        }
+
+        // Same flag as what TaskStackBuilder adds.
+        intent.addFlags(
+                Intent.FLAG_ACTIVITY_NEW_TASK |
+                        Intent.FLAG_ACTIVITY_CLEAR_TASK |
+                        Intent.FLAG_ACTIVITY_TASK_ON_HOME);
+        return intent;
+    }
+
+    @NonNull
+    @Override
+    public AppShortcut createShortcut(@NonNull String id,
+                                      boolean enabled,
+                                      int iconResId,
+                                      int shortLabelResId,
+                                      int longLabelResId,
+                                      int disabledMessageResId,
+                                      int rank,
+                                      @NonNull Intent intent,
+                                      @NonNull Set<String> categories) {
+        return new AppShortcut(
                 id,
-                packageName,
+                packageDescriptor,
                 activity,
+                enabled,
+                iconResId,
                 shortLabelResId,
                 longLabelResId,
                 disabledMessageResId,
                 rank,
-                iconResId,
-                enabled);
+                intent,
+                categories);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancellationSignal != null && cancellationSignal.isCanceled();
     }
-    private static AppShortcut createShortcut(Context context,
-                                              String id, String packageName, ComponentName activityComponent,
-                                              int shortLabelResId, int longLabelResId, int disabledMessageResId,
-                                              int rank, int iconResId, boolean enabled) {
-        try {
-            Context packageContext = context.createPackageContext(packageName, 0);
 
-            String title = packageContext.getString(shortLabelResId);
-            String text = longLabelResId != 0 ? packageContext.getString(longLabelResId) : null;
-            String disabledMessage = disabledMessageResId != 0 ? packageContext.getString(disabledMessageResId) : "";
-            Drawable icon = ContextCompat.getDrawable(packageContext, iconResId);
+    /**
+     * Closes the underlying parser
+     */
+    @Override
+    public void close() {
+        parser.close();
+    }
 
-            return new AppShortcut(
-                    id,
-                    packageName,
-                    activityComponent,
-                    enabled,
-                    icon,
-                    title,
-                    text,
-                    disabledMessage,
-                    rank);
-        } catch (PackageManager.NameNotFoundException e) {
-            e.printStackTrace();
-            return null;
+    private ComponentName share(ComponentName component) {
+        if (component.equals(activity)) {
+            return activity;
+        }
+
+        ComponentName shared = components.get(component);
+        if (shared == null) {
+            components.put(component, component);
+            shared = component;
         }
+        return shared;
     }
-}
\ No newline at end of file
+}
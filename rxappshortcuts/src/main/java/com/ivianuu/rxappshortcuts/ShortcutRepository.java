@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+
+/**
+ * Memoizes parsed shortcuts and shares running parses between subscribers
+ * Memoized shortcuts are dropped as soon as the package version or retrieval mode changes
+ * or the backend which loaded them is not usable anymore
+ */
+final class ShortcutRepository {
+
+    private static final ShortcutRepository INSTANCE = new ShortcutRepository();
+
+    private final ConcurrentMap<String, Memo> memoized = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Single<PackageShortcuts>> inFlight = new ConcurrentHashMap<>();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    // makes invalidations atomic with storing the result of a parse
+    private final Object lock = new Object();
+
+    private ShortcutRepository() {
+    }
+
+    /**
+     * Returns the shared instance
+     */
+    @NonNull
+    static ShortcutRepository get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a single which emits the shortcuts of the package
+     * Concurrent subscribers for the same package will share a single parse
+     * which is cancelled when the last of them is disposed
+     */
+    @CheckResult @NonNull
+    Single<PackageShortcuts> getShortcuts(@NonNull Context context, @NonNull String packageName) {
+        return getShortcuts(context, packageName, RxAppShortcuts.getConfig().getScheduler());
+    }
+
+    /**
+     * Returns a single which emits the shortcuts of the package
+     * A new parse will be done on the scheduler
+     */
+    @CheckResult @NonNull
+    Single<PackageShortcuts> getShortcuts(@NonNull Context context,
+                                          @NonNull String packageName,
+                                          @NonNull Scheduler scheduler) {
+        return Single.defer(() -> {
+            ShortcutConfig config = RxAppShortcuts.getConfig();
+            RetrievalMode retrievalMode = config.getRetrievalMode();
+            Memo memo = memoized.get(packageName);
+            if (memo != null) {
+                PackageInfo packageInfo = PackageInfoLoader.getPackageInfo(context, packageName, 0, config);
+                if (isValid(context, memo, packageInfo, retrievalMode, config)) {
+                    return Single.just(memo.shortcuts);
+                }
+
+                // outdated
+                if (memoized.remove(packageName, memo)) {
+                    categoryIndex.remove(packageName);
+                }
+            }
+
+            return parse(context, packageName, retrievalMode, scheduler);
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * Returns the memoized shortcuts of the package
+     * if they are up to date for the package info and were parsed in the retrieval mode
+     */
+    @Nullable
+    ShortcutSet getMemoized(@NonNull Context context,
+                            @NonNull PackageInfo packageInfo,
+                            @NonNull RetrievalMode retrievalMode) throws InterruptedException {
+        Memo memo = memoized.get(packageInfo.packageName);
+        if (memo != null && isValid(context, memo, packageInfo, retrievalMode, RxAppShortcuts.getConfig())) {
+            return memo.shortcuts.getShortcuts();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the memoized shortcuts of all packages with the category
+     */
+    @NonNull
+    List<AppShortcut> getByCategory(@NonNull String category) {
+        return categoryIndex.get(category);
+    }
+
+    /**
+     * Drops the memoized shortcuts of the package
+     * Running parses of the package won't be shared with later subscribers
+     * and their results won't be memoized
+     */
+    void invalidate(@NonNull String packageName) {
+        synchronized (lock) {
+            inFlight.remove(packageName);
+            memoized.remove(packageName);
+            categoryIndex.remove(packageName);
+        }
+    }
+
+    /**
+     * Drops all memoized shortcuts
+     */
+    void clear() {
+        memoized.clear();
+        categoryIndex.clear();
+    }
+
+    private static boolean isValid(Context context,
+                                   Memo memo,
+                                   PackageInfo packageInfo,
+                                   RetrievalMode retrievalMode,
+                                   ShortcutConfig config) throws InterruptedException {
+        return memo.retrievalMode == retrievalMode
+                && memo.shortcuts.isUpToDate(packageInfo)
+                && LauncherAppsShortcuts.isUsable(context, memo.shortcuts, config);
+    }
+
+    private Single<PackageShortcuts> parse(Context context,
+                                           String packageName,
+                                           RetrievalMode retrievalMode,
+                                           Scheduler scheduler) {
+        Single<PackageShortcuts> running = inFlight.get(packageName);
+        if (running != null) {
+            return running;
+        }
+
+        AtomicReference<Single<PackageShortcuts>> self = new AtomicReference<>();
+        Single<PackageShortcuts> parse = RetrieveShortcutsForPackageSingle.create(context, packageName, retrievalMode, scheduler)
+                .doOnSuccess(shortcuts -> {
+                    synchronized (lock) {
+                        if (inFlight.get(packageName) != self.get()) {
+                            // the package was invalidated while it was parsed so the result is stale
+                            return;
+                        }
+                        memoized.put(packageName, new Memo(shortcuts, retrievalMode));
+                        categoryIndex.put(packageName, shortcuts.getShortcuts());
+                    }
+                })
+                .doFinally(() -> inFlight.remove(packageName, self.get()))
+                // the parse is cancelled once all subscribers are gone
+                .toObservable()
+                .share()
+                .singleOrError();
+        self.set(parse);
+
+        running = inFlight.putIfAbsent(packageName, parse);
+        return running != null ? running : parse;
+    }
+
+    private static final class Memo {
+        private final PackageShortcuts shortcuts;
+        private final RetrievalMode retrievalMode;
+
+        private Memo(PackageShortcuts shortcuts, RetrievalMode retrievalMode) {
+            this.shortcuts = shortcuts;
+            this.retrievalMode = retrievalMode;
+        }
+    }
+}
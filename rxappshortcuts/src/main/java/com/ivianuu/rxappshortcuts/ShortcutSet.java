@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.ComponentName;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.ivianuu.rxappshortcuts.Preconditions.checkNotNull;
+
+/**
+ * A immutable list of shortcuts which can be looked up by id, activity and category
+ * The shortcuts are ordered by activity and by rank within each activity
+ * Every id is only contained once
+ * Sets are parceled in their compact binary form
+ */
+public final class ShortcutSet extends AbstractList<AppShortcut> implements Parcelable {
+
+    public static final Creator<ShortcutSet> CREATOR = new Creator<ShortcutSet>() {
+        @Override
+        public ShortcutSet createFromParcel(Parcel source) {
+            return fromByteArray(source.createByteArray());
+        }
+
+        @Override
+        public ShortcutSet[] newArray(int size) {
+            return new ShortcutSet[size];
+        }
+    };
+
+    private static final ShortcutSet EMPTY = new ShortcutSet(Collections.emptyList());
+
+    private final List<AppShortcut> shortcuts;
+    private final Map<String, AppShortcut> byId;
+    private final Map<ComponentName, List<AppShortcut>> byActivity;
+    private final Map<String, List<AppShortcut>> byCategory;
+
+    private ShortcutSet(List<AppShortcut> shortcuts) {
+        this.shortcuts = shortcuts;
+        this.byId = new HashMap<>(shortcuts.size() * 2);
+        this.byActivity = new HashMap<>();
+        this.byCategory = new HashMap<>();
+
+        for (AppShortcut shortcut : shortcuts) {
+            byId.put(shortcut.getId(), shortcut);
+            addTo(byActivity, shortcut.getActivity(), shortcut);
+            for (String category : shortcut.getCategories()) {
+                addTo(byCategory, category, shortcut);
+            }
+        }
+
+        // the lists are handed out directly
+        freeze(byActivity);
+        freeze(byCategory);
+    }
+
+    /**
+     * Returns a empty shortcut set
+     */
+    @NonNull
+    static ShortcutSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a shortcut set of the shortcuts
+     * If a id is contained multiple times the first one wins
+     */
+    @NonNull
+    static ShortcutSet of(@NonNull List<AppShortcut> shortcuts) {
+        if (shortcuts.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<String, AppShortcut> ids = new HashMap<>(shortcuts.size() * 2);
+        List<AppShortcut> distinct = new ArrayList<>(shortcuts.size());
+        for (AppShortcut shortcut : shortcuts) {
+            if (ids.put(shortcut.getId(), shortcut) == null) {
+                distinct.add(shortcut);
+            }
+        }
+
+        return new ShortcutSet(Collections.unmodifiableList(distinct));
+    }
+
+    /**
+     * Returns the shortcut set of the binary form
+     * Throws a iae if the data is invalid
+     */
+    @NonNull
+    public static ShortcutSet fromByteArray(@NonNull byte[] data) {
+        checkNotNull(data, "data == null");
+        return of(ShortcutCodec.decode(data));
+    }
+
+    /**
+     * Returns the stable compact binary form of this set
+     */
+    @NonNull
+    public byte[] toByteArray() {
+        return ShortcutCodec.encode(shortcuts);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeByteArray(toByteArray());
+    }
+
+    @Override
+    public AppShortcut get(int index) {
+        return shortcuts.get(index);
+    }
+
+    @Override
+    public int size() {
+        return shortcuts.size();
+    }
+
+    /**
+     * Returns the shortcut with the id or null if there is none
+     */
+    @Nullable
+    public AppShortcut getById(@NonNull String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Returns the shortcuts of the activity
+     */
+    @NonNull
+    public List<AppShortcut> getByActivity(@NonNull ComponentName activity) {
+        List<AppShortcut> result = byActivity.get(activity);
+        return result != null ? result : Collections.emptyList();
+    }
+
+    /**
+     * Returns all categories of the shortcuts
+     */
+    @NonNull
+    public Set<String> getCategories() {
+        return Collections.unmodifiableSet(byCategory.keySet());
+    }
+
+    /**
+     * Returns the shortcuts with the category
+     */
+    @NonNull
+    public List<AppShortcut> getByCategory(@NonNull String category) {
+        List<AppShortcut> result = byCategory.get(category);
+        return result != null ? result : Collections.emptyList();
+    }
+
+    private static <K> void addTo(Map<K, List<AppShortcut>> map, K key, AppShortcut shortcut) {
+        List<AppShortcut> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<>(4);
+            map.put(key, list);
+        }
+        list.add(shortcut);
+    }
+
+    private static <K> void freeze(Map<K, List<AppShortcut>> map) {
+        for (Map.Entry<K, List<AppShortcut>> entry : map.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Parses shortcuts xml files
+ * This class only depends on xml pull so it can be run on a plain jvm
+ *
+ * @param <I> the intent type
+ * @param <S> the shortcut type
+ */
+final class ShortcutXmlParser<I, S> {
+
+    private static final String KEY_ICON = "icon";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_ID = "shortcutId";
+    private static final String KEY_SHORT_LABEL = "shortcutShortLabel";
+    private static final String KEY_LONG_LABEL = "shortcutLongLabel";
+    private static final String KEY_DISABLED_MESSAGE = "shortcutDisabledMessage";
+    private static final String KEY_NAME = "name";
+
+    private static final String TAG_SHORTCUTS = "shortcuts";
+    private static final String TAG_SHORTCUT = "shortcut";
+    private static final String TAG_INTENT = "intent";
+    private static final String TAG_CATEGORIES = "categories";
+
+    private final ShortcutXmlSource<I, S> source;
+    private final XmlPullParser parser;
+
+    private final Set<String> parsedIds = new HashSet<>();
+    private int rank = 0;
+    private int rejectedCount = 0;
+    // We read the attributes at <shortcut>, but we create the shortcut at </shortcut>,
+    // after parsing <intent>.  We keep the current one in here.
+    private PendingShortcut currentShortcut = null;
+    private Set<String> categories = null;
+    private I intent = null;
+    private boolean finished = false;
+
+    ShortcutXmlParser(@NonNull ShortcutXmlSource<I, S> source) {
+        this.source = source;
+        this.parser = source.getParser();
+    }
+
+    /**
+     * Returns the next shortcut as soon as its element is closed or null if there are no more shortcuts
+     * Returns null as well if the source was cancelled
+     */
+    @Nullable
+    S next() throws IOException, XmlPullParserException, InterruptedException {
+        if (finished) {
+            return null;
+        }
+
+        int type;
+
+        while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
+                && (type != XmlPullParser.END_TAG || parser.getDepth() > 0)) {
+            final int depth = parser.getDepth();
+            final String tag = parser.getName();
+            // When a shortcut tag is closing, publish.
+            if ((type == XmlPullParser.END_TAG) && (depth == 2) && (TAG_SHORTCUT.equals(tag))) {
+                if (currentShortcut == null) {
+                    // Shortcut was invalid.
+                    continue;
+                }
+                final PendingShortcut pending = currentShortcut;
+                currentShortcut = null; // Make sure to null out for the next iteration.
+                if (intent == null) {
+                    // no intents available
+                    rejectedCount++;
+                    continue;
+                }
+
+                // if no categories where found pass a empty set
+                final S si = source.createShortcut(
+                        pending.id,
+                        pending.enabled,
+                        pending.iconResId,
+                        pending.shortLabelResId,
+                        pending.longLabelResId,
+                        pending.disabledMessageResId,
+                        pending.rank,
+                        intent,
+                        categories != null ? categories : Collections.<String>emptySet());
+
+                intent = null;
+                categories = null;
+
+                parsedIds.add(pending.id);
+                rank++;
+                return si;
+            }
+            // Otherwise, just look at start tags.
+            if (type != XmlPullParser.START_TAG) {
+                continue;
+            }
+
+            if (depth == 1 && TAG_SHORTCUTS.equals(tag)) {
+                continue; // Root tag.
+            }
+
+            if (depth == 2 && TAG_SHORTCUT.equals(tag)) {
+                if (source.isCancelled()) {
+                    // nobody is interested in the remaining shortcuts
+                    break;
+                }
+
+                final PendingShortcut si = parseShortcutAttributes(rank);
+                if (si == null) {
+                    // Shortcut was invalid.
+                    rejectedCount++;
+                    continue;
+                }
+
+                if (parsedIds.contains(si.id)) {
+                    // already declared
+                    rejectedCount++;
+                    continue;
+                }
+                currentShortcut = si;
+                intent = null;
+                categories = null;
+                continue;
+            }
+
+            if (depth == 3 && TAG_INTENT.equals(tag)) {
+                if ((currentShortcut == null)) {
+                    continue;
+                }
+
+                intent = source.parseIntent();
+
+                if (intent == null) {
+                    currentShortcut = null; // Invalidate the current shortcut.
+                    rejectedCount++;
+                }
+
+                continue;
+            }
+
+            if (depth == 3 && TAG_CATEGORIES.equals(tag)) {
+                if (currentShortcut == null) {
+                    continue;
+                }
+
+                final String name = parseCategories();
+
+                if (isEmpty(name)) {
+                    continue;
+                }
+
+                if (categories == null) {
+                    categories = new HashSet<>();
+                }
+
+                // categories are shared by many shortcuts
+                categories.add(name.intern());
+            }
+        }
+
+        finished = true;
+        return null;
+    }
+
+    /**
+     * Returns the number of shortcuts which were dropped so far
+     */
+    int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Closes the underlying parser
+     */
+    void close() {
+        finished = true;
+        source.close();
+    }
+
+    private String parseCategories() {
+        String name = null;
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            if (parser.getAttributeName(i).equals(KEY_NAME)) {
+                name = parser.getAttributeValue(i);
+            }
+        }
+
+        return name;
+    }
+
+    private PendingShortcut parseShortcutAttributes(int rank) {
+        String id = null;
+        boolean enabled = false;
+        int iconResId = 0;
+        int shortLabelResId = 0;
+        int longLabelResId = 0;
+        int disabledMessageResId = 0;
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            String name = parser.getAttributeName(i);
+            switch (name) {
+                case KEY_ICON:
+                    iconResId = source.getAttributeResourceValue(i);
+                    break;
+                case KEY_ENABLED:
+                    enabled = source.getAttributeBooleanValue(i);
+                    break;
+                case KEY_ID:
+                    id = parser.getAttributeValue(i);
+                    break;
+                case KEY_SHORT_LABEL:
+                    shortLabelResId = source.getAttributeResourceValue(i);
+                    break;
+                case KEY_LONG_LABEL:
+                    longLabelResId = source.getAttributeResourceValue(i);
+                    break;
+                case KEY_DISABLED_MESSAGE:
+                    disabledMessageResId = source.getAttributeResourceValue(i);
+                    break;
+            }
+        }
+
+        if (isEmpty(id)) {
+            return null;
+        }
+        if (shortLabelResId == 0) {
+            return null;
+        }
+
+        return new PendingShortcut(
+                id,
+                enabled,
+                iconResId,
+                shortLabelResId,
+                longLabelResId,
+                disabledMessageResId,
+                rank);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.length() == 0;
+    }
+
+    /**
+     * The attributes of a shortcut whose element is not closed yet
+     */
+    private static final class PendingShortcut {
+        private final String id;
+        private final boolean enabled;
+        private final int iconResId;
+        private final int shortLabelResId;
+        private final int longLabelResId;
+        private final int disabledMessageResId;
+        private final int rank;
+
+        private PendingShortcut(String id, boolean enabled, int iconResId,
+                                int shortLabelResId, int longLabelResId, int disabledMessageResId, int rank) {
+            this.id = id;
+            this.enabled = enabled;
+            this.iconResId = iconResId;
+            this.shortLabelResId = shortLabelResId;
+            this.longLabelResId = longLabelResId;
+            this.disabledMessageResId = disabledMessageResId;
+            this.rank = rank;
+        }
+    }
+}
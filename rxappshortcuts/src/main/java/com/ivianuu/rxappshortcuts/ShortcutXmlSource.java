@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Provides the platform specific parts of shortcut parsing
+ * Implementations must not be used by multiple parsers
+ *
+ * @param <I> the intent type
+ * @param <S> the shortcut type
+ */
+interface ShortcutXmlSource<I, S> {
+
+    /**
+     * Returns the parser of the shortcuts xml
+     */
+    @NonNull
+    XmlPullParser getParser();
+
+    /**
+     * Returns the resource id of the attribute at the index or 0 if it is not a resource
+     */
+    int getAttributeResourceValue(int index);
+
+    /**
+     * Returns the boolean value of the attribute at the index
+     */
+    boolean getAttributeBooleanValue(int index);
+
+    /**
+     * Parses the current intent element and moves the parser to its end
+     * Returns null if the intent is invalid and the shortcut should be dropped
+     */
+    @Nullable
+    I parseIntent() throws IOException, XmlPullParserException, InterruptedException;
+
+    /**
+     * Returns a new shortcut
+     */
+    @NonNull
+    S createShortcut(@NonNull String id,
+                     boolean enabled,
+                     int iconResId,
+                     int shortLabelResId,
+                     int longLabelResId,
+                     int disabledMessageResId,
+                     int rank,
+                     @NonNull I intent,
+                     @NonNull Set<String> categories);
+
+    /**
+     * Returns if parsing should stop
+     * The parser will then finish early without emitting further shortcuts
+     */
+    boolean isCancelled();
+
+    /**
+     * Closes the parser
+     */
+    void close();
+}
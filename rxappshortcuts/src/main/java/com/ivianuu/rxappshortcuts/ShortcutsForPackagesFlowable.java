@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.pm.PackageManager;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+/**
+ * Emits the app shortcuts of multiple packages
+ */
+final class ShortcutsForPackagesFlowable {
+
+    private ShortcutsForPackagesFlowable() {
+        // no instances
+    }
+
+    /**
+     * Returns a flowable which emits the shortcuts of each package loaded by the loader
+     * At most max concurrency packages will be loaded at the same time
+     * If ordered is true the results will be emitted in the order of the package names
+     * Packages which fail with an exception are skipped, errors still end the query
+     */
+    @CheckResult @NonNull
+    static Flowable<PackageShortcuts> create(@NonNull Flowable<String> packageNames,
+                                             @NonNull Function<String, Single<PackageShortcuts>> loader,
+                                             int maxConcurrency,
+                                             boolean ordered) {
+        Function<String, Flowable<PackageShortcuts>> mapper = packageName ->
+                Single.defer(() -> loader.apply(packageName))
+                        .toFlowable()
+                        .onErrorResumeNext((Throwable throwable) -> {
+                            if (throwable instanceof PackageManager.NameNotFoundException) {
+                                // the package was uninstalled in the meantime
+                                return Flowable.empty();
+                            }
+                            if (throwable instanceof TimeoutException) {
+                                // a single slow package should not fail the whole query
+                                return Flowable.empty();
+                            }
+                            if (throwable instanceof Exception) {
+                                // a single broken package should not fail the whole query
+                                throwable.printStackTrace();
+                                return Flowable.empty();
+                            }
+                            return Flowable.error(throwable);
+                        });
+
+        if (ordered) {
+            return Prefetcher.get().foreground(
+                    packageNames.concatMapEager(mapper, maxConcurrency, Flowable.bufferSize()));
+        } else {
+            return Prefetcher.get().foreground(packageNames.flatMap(mapper, maxConcurrency));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Manuel Wrage
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ivianuu.rxappshortcuts;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.os.CancellationSignal;
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.Completable;
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.functions.Consumer;
+
+/**
+ * Emits the app shortcuts of the passed package one by one as soon as they are parsed
+ * Shortcuts are only parsed when they are requested
+ */
+final class StreamShortcutsForPackageFlowable implements BiConsumer<StreamShortcutsForPackageFlowable.State, Emitter<AppShortcut>> {
+
+    private StreamShortcutsForPackageFlowable() {
+    }
+
+    /**
+     * Returns a flowable which emits the app shortcuts for the passed package
+     * Parsing stops as soon as the flowable is cancelled or the package timeout has elapsed
+     */
+    @CheckResult @NonNull
+    static Flowable<AppShortcut> create(Context context, String packageName) {
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+        Flowable<AppShortcut> flowable = Flowable.defer(() -> {
+            // the state is only closed after a running parse returned so the parser is stopped directly
+            CancellationSignal cancellationSignal = new CancellationSignal();
+            return Flowable.generate(() -> createState(context, packageName, cancellationSignal),
+                    new StreamShortcutsForPackageFlowable(),
+                    (Consumer<State>) State::close)
+                    .doOnCancel(cancellationSignal::cancel);
+        }).subscribeOn(config.getScheduler());
+
+        long timeoutMillis = config.getPackageTimeoutMillis();
+        if (timeoutMillis > 0) {
+            // limits the whole stream like the timeout of the single parse
+            flowable = flowable.takeUntil(Completable.timer(timeoutMillis, TimeUnit.MILLISECONDS)
+                    .andThen(Flowable.error(TimeoutException::new)));
+        }
+
+        return flowable;
+    }
+
+    @Override
+    public void accept(State state, Emitter<AppShortcut> emitter) throws Exception {
+        AppShortcut shortcut;
+        try {
+            shortcut = state.next();
+        } catch (Exception e) {
+            if (state.cancellationSignal.isCanceled()) {
+                // cancelling interrupts the worker, the generator stops on its own
+                return;
+            }
+            throw e;
+        }
+
+        if (shortcut != null) {
+            emitter.onNext(shortcut);
+        } else {
+            emitter.onComplete();
+        }
+    }
+
+    private static State createState(Context context,
+                                     String packageName,
+                                     CancellationSignal cancellationSignal) throws Exception {
+        try {
+            return loadState(context, packageName, cancellationSignal);
+        } catch (InterruptedException e) {
+            // the state is created before the subscription exists so cancelling only interrupts the worker,
+            // an error would go to the global error handler because nobody is subscribed anymore
+            return new State(Collections.<AppShortcut>emptyIterator(), null, cancellationSignal);
+        }
+    }
+
+    private static State loadState(Context context,
+                                   String packageName,
+                                   CancellationSignal cancellationSignal) throws Exception {
+        ShortcutConfig config = RxAppShortcuts.getConfig();
+
+        PackageShortcuts launcherAppsShortcuts = LauncherAppsShortcuts.load(context, packageName, config);
+        if (launcherAppsShortcuts != null) {
+            return new State(launcherAppsShortcuts.getShortcuts().iterator(), null, cancellationSignal);
+        }
+
+        // the version is enough to validate already parsed shortcuts
+        RetrievalMode retrievalMode = config.getRetrievalMode();
+        PackageInfo packageInfo = PackageInfoLoader.getPackageInfo(context, packageName, 0, config);
+
+        // already parsed shortcuts don't have to be parsed again
+        List<AppShortcut> shortcuts = ShortcutRepository.get().getMemoized(context, packageInfo, retrievalMode);
+        if (shortcuts == null) {
+            ShortcutIndex shortcutIndex = config.getShortcutIndex();
+            if (shortcutIndex != null) {
+                shortcuts = shortcutIndex.read(packageInfo, retrievalMode);
+            }
+        }
+
+        if (shortcuts != null) {
+            return new State(shortcuts.iterator(), null, cancellationSignal);
+        } else {
+            return new State(null, new PackageShortcutReader(context,
+                    PackageInfoLoader.loadActivities(context, packageInfo, retrievalMode, config),
+                    cancellationSignal), cancellationSignal);
+        }
+    }
+
+    static final class State {
+        private final Iterator<AppShortcut> iterator;
+        private final PackageShortcutReader reader;
+        private final CancellationSignal cancellationSignal;
+
+        private State(Iterator<AppShortcut> iterator,
+                      PackageShortcutReader reader,
+                      CancellationSignal cancellationSignal) {
+            this.iterator = iterator;
+            this.reader = reader;
+            this.cancellationSignal = cancellationSignal;
+        }
+
+        private AppShortcut next() throws Exception {
+            if (iterator != null) {
+                return iterator.hasNext() ? iterator.next() : null;
+            } else {
+                return reader.next();
+            }
+        }
+
+        private void close() {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -9,6 +9,8 @@ import android.support.v7.widget.RecyclerView;
 
 import com.ivianuu.rxappshortcuts.AppShortcut;
 import com.ivianuu.rxappshortcuts.RxAppShortcuts;
+import com.ivianuu.rxappshortcuts.ShortcutChange;
+import com.ivianuu.rxappshortcuts.ShortcutIconLoader;
 
 import java.util.List;
 
@@ -26,13 +28,19 @@ public class MainActivity extends AppCompatActivity {
         recyclerView = findViewById(R.id.recycler);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        final ShortcutAdapter shortcutAdapter = new ShortcutAdapter();
+        int iconSize = getResources().getDimensionPixelSize(R.dimen.shortcut_icon_size);
+        final ShortcutAdapter shortcutAdapter = new ShortcutAdapter(ShortcutIconLoader.create(this, iconSize));
         recyclerView.setAdapter(shortcutAdapter);
 
-        RxAppShortcuts.getShortcutsFor(this, "com.ivianuu.piecontrols")
-                .subscribe(appShortcuts -> new Handler(Looper.getMainLooper()).post(() -> {
+        String packageName = "com.ivianuu.piecontrols";
+        RxAppShortcuts.observeShortcuts(this)
+                .filter(change -> change.getPackageName().equals(packageName))
+                .map(ShortcutChange::getShortcuts)
+                .startWith(RxAppShortcuts.getShortcutsFor(this, packageName).toObservable())
+                .compose(RxAppShortcuts.diffShortcuts())
+                .subscribe(diff -> new Handler(Looper.getMainLooper()).post(() -> {
                     // to lazy to include rxandroid dependency :DD
-                    shortcutAdapter.update(appShortcuts);
+                    shortcutAdapter.update(diff);
                 }), Throwable::printStackTrace);
     }
 }
@@ -8,6 +8,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.ivianuu.rxappshortcuts.AppShortcut;
+import com.ivianuu.rxappshortcuts.ShortcutDiff;
+import com.ivianuu.rxappshortcuts.ShortcutIconLoader;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,12 +19,37 @@ import java.util.List;
  */
 class ShortcutAdapter extends RecyclerView.Adapter<ShortcutAdapter.ShortcutViewHolder> {
 
+    private final ShortcutIconLoader iconLoader;
     private List<AppShortcut> appShortcuts = new ArrayList<>();
 
-    void update(List<AppShortcut> appShortcuts) {
+    ShortcutAdapter(ShortcutIconLoader iconLoader) {
+        this.iconLoader = iconLoader;
+    }
+
+    void update(ShortcutDiff diff) {
         this.appShortcuts.clear();
-        this.appShortcuts.addAll(appShortcuts);
-        notifyDataSetChanged();
+        this.appShortcuts.addAll(diff.getShortcuts());
+        diff.dispatchTo(new ShortcutDiff.Callback() {
+            @Override
+            public void onInserted(int position) {
+                notifyItemInserted(position);
+            }
+
+            @Override
+            public void onRemoved(int position) {
+                notifyItemRemoved(position);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position) {
+                notifyItemChanged(position);
+            }
+        });
     }
 
     @Override
@@ -34,10 +61,16 @@ class ShortcutAdapter extends RecyclerView.Adapter<ShortcutAdapter.ShortcutViewH
     public void onBindViewHolder(final ShortcutViewHolder holder, int position) {
         final AppShortcut shortcut = appShortcuts.get(position);
 
-        holder.shortcutIcon.setImageDrawable(shortcut.getIcon());
+        iconLoader.bind(shortcut, holder.shortcutIcon);
         holder.shortcutLabel.setText(shortcut.getShortLabel());
 
-        holder.itemView.setOnClickListener(view -> holder.itemView.getContext().startActivity(shortcut.getIntent()));
+        holder.itemView.setOnClickListener(view -> shortcut.start(holder.itemView.getContext()));
+    }
+
+    @Override
+    public void onViewRecycled(ShortcutViewHolder holder) {
+        super.onViewRecycled(holder);
+        iconLoader.cancel(holder.shortcutIcon);
     }
 
     @Override